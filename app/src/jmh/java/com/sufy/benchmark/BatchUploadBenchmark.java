@@ -0,0 +1,75 @@
+package com.sufy.benchmark;
+
+import com.sufy.mock.MockObjectServer;
+import com.sufy.sdk.services.object.ObjectClient;
+import com.sufy.sdk.services.object.model.PutObjectRequest;
+import com.sufy.transfer.BatchUploader;
+import org.openjdk.jmh.annotations.*;
+import software.amazon.awssdk.core.sync.RequestBody;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * 小对象批量上传的吞吐（objects/s）：逐个 putObject 与 BatchUploader 在不同并发下对比
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchUploadBenchmark {
+    private static final int BATCH = 1000;
+
+    @Param({"8", "32", "64"})
+    public int concurrency;
+
+    private MockObjectServer server;
+    private ObjectClient client;
+    private BatchUploader uploader;
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = BenchmarkSupport.startServer();
+        client = BenchmarkSupport.newClient(server.getEndpoint(), BenchmarkSupport.newHttpClient());
+        BenchmarkSupport.createBucket(client);
+        uploader = BatchUploader.builder()
+                .client(client)
+                .concurrency(concurrency)
+                .build();
+        payload = new byte[64];
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        uploader.close();
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void sequentialPutObject() {
+        for (int i = 0; i < BATCH; i++) {
+            client.putObject(PutObjectRequest.builder()
+                            .bucket(BenchmarkSupport.BUCKET)
+                            .key("batch-upload-benchmark/" + i)
+                            .build(),
+                    RequestBody.fromBytes(payload));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public BatchUploader.Result batchUpload() {
+        BatchUploader.Result result = uploader.upload(BenchmarkSupport.BUCKET, IntStream.range(0, BATCH)
+                .mapToObj(i -> BatchUploader.Item.of("batch-upload-benchmark/" + i, payload)));
+        if (!result.failed.isEmpty()) {
+            throw new IllegalStateException("batch upload failed: " + result);
+        }
+        return result;
+    }
+}
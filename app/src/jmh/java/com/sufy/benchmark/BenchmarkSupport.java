@@ -0,0 +1,77 @@
+package com.sufy.benchmark;
+
+import com.sufy.mock.MockObjectServer;
+import com.sufy.sdk.auth.credentials.StaticCredentialsProvider;
+import com.sufy.sdk.auth.credentials.SufyBasicCredentials;
+import com.sufy.sdk.services.object.ObjectClient;
+import com.sufy.sdk.services.object.model.CreateBucketRequest;
+import com.sufy.signer.CachingSigner;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.client.config.SdkAdvancedClientOption;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.regions.Region;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * 基准测试公共设施：启动本地替身服务，构造指向它的 ObjectClient
+ */
+final class BenchmarkSupport {
+    static final String BUCKET = "benchmark-bucket";
+    static final String REGION = "cn-east-1";
+    static final String ACCESS_KEY = "benchmark-ak";
+    static final String SECRET_KEY = "benchmark-sk";
+
+    private BenchmarkSupport() {
+    }
+
+    static MockObjectServer startServer() throws IOException {
+        return MockObjectServer.start("127.0.0.1", 0, REGION);
+    }
+
+    static SdkHttpClient newHttpClient() {
+        return ApacheHttpClient.builder()
+                .maxConnections(100)
+                .connectionTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    static ObjectClient newClient(URI endpoint, SdkHttpClient httpClient) {
+        return newClient(endpoint, httpClient, ClientOverrideConfiguration.builder().build());
+    }
+
+    /**
+     * 使用缓存签名密钥的 {@link CachingSigner} 代替 SDK 内置签名
+     */
+    static ObjectClient newCachingSignerClient(URI endpoint, SdkHttpClient httpClient) {
+        return newClient(endpoint, httpClient, ClientOverrideConfiguration.builder()
+                .putAdvancedOption(SdkAdvancedClientOption.SIGNER, CachingSigner.builder()
+                        .accessKeyId(ACCESS_KEY)
+                        .secretAccessKey(SECRET_KEY)
+                        .region(REGION)
+                        .build())
+                .build());
+    }
+
+    private static ObjectClient newClient(URI endpoint, SdkHttpClient httpClient, ClientOverrideConfiguration overrideConfiguration) {
+        return ObjectClient.builder()
+                .region(Region.of(REGION))
+                .endpointOverride(endpoint)
+                .forcePathStyle(true)
+                .credentialsProvider(
+                        StaticCredentialsProvider.create(
+                                SufyBasicCredentials.create(ACCESS_KEY, SECRET_KEY)
+                        )
+                )
+                .httpClient(httpClient)
+                .overrideConfiguration(overrideConfiguration)
+                .build();
+    }
+
+    static void createBucket(ObjectClient client) {
+        client.createBucket(CreateBucketRequest.builder().bucket(BUCKET).build());
+    }
+}
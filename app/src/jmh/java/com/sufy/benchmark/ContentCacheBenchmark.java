@@ -0,0 +1,121 @@
+package com.sufy.benchmark;
+
+import com.sufy.cache.ContentCache;
+import com.sufy.mock.MockObjectServer;
+import com.sufy.sdk.services.object.ObjectClient;
+import com.sufy.sdk.services.object.model.GetObjectRequest;
+import com.sufy.sdk.services.object.model.GetObjectResponse;
+import com.sufy.sdk.services.object.model.PutObjectRequest;
+import org.openjdk.jmh.annotations.*;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.RequestBody;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 磁盘内容缓存命中路径的延迟：直接 getObject、命中后完整读取、命中后范围读取、304 验证后读取
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContentCacheBenchmark {
+    private static final String KEY = "content-cache-benchmark";
+    private static final int RANGE_SIZE = 64 * 1024;
+
+    // 64KB ~ 64MB
+    @Param({"65536", "1048576", "16777216", "67108864"})
+    public int payloadSize;
+
+    private MockObjectServer server;
+    private ObjectClient client;
+    private Path directory;
+    private ContentCache cache;
+    private ContentCache revalidatingCache;
+    private GetObjectRequest request;
+    private GetObjectRequest rangeRequest;
+    private byte[] readBuffer;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = BenchmarkSupport.startServer();
+        client = BenchmarkSupport.newClient(server.getEndpoint(), BenchmarkSupport.newHttpClient());
+        BenchmarkSupport.createBucket(client);
+        byte[] payload = new byte[payloadSize];
+        new Random(payloadSize).nextBytes(payload);
+        client.putObject(PutObjectRequest.builder().bucket(BenchmarkSupport.BUCKET).key(KEY).build(),
+                RequestBody.fromBytes(payload));
+
+        directory = Files.createTempDirectory("content-cache-benchmark");
+        cache = ContentCache.builder()
+                .client(client)
+                .directory(directory.resolve("fresh"))
+                .revalidateAfter(Duration.ofHours(1))
+                .build();
+        revalidatingCache = ContentCache.builder()
+                .client(client)
+                .directory(directory.resolve("revalidating"))
+                .revalidateAfter(Duration.ZERO)
+                .build();
+        request = GetObjectRequest.builder().bucket(BenchmarkSupport.BUCKET).key(KEY).build();
+        long rangeStart = payloadSize / 2 - RANGE_SIZE / 2;
+        rangeRequest = request.toBuilder()
+                .range(String.format("bytes=%d-%d", rangeStart, rangeStart + RANGE_SIZE - 1))
+                .build();
+        readBuffer = new byte[64 * 1024];
+        // 预先填充缓存，基准只测命中路径
+        drain(cache.getObject(request));
+        drain(revalidatingCache.getObject(request));
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws IOException {
+        cache.invalidateAll();
+        revalidatingCache.invalidateAll();
+        client.close();
+        server.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public long getObject() throws IOException {
+        return drain(client.getObject(request));
+    }
+
+    @Benchmark
+    public long cachedGetObject() throws IOException {
+        return drain(cache.getObject(request));
+    }
+
+    @Benchmark
+    public long cachedRangeGetObject() throws IOException {
+        return drain(cache.getObject(rangeRequest));
+    }
+
+    @Benchmark
+    public long revalidatedGetObject() throws IOException {
+        return drain(revalidatingCache.getObject(request));
+    }
+
+    private long drain(ResponseInputStream<GetObjectResponse> ris) throws IOException {
+        long total = 0;
+        try (ris) {
+            int n;
+            while ((n = ris.read(readBuffer)) >= 0) {
+                total += n;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,73 @@
+package com.sufy.benchmark;
+
+import com.sufy.mock.MockObjectServer;
+import com.sufy.sdk.services.object.ObjectClient;
+import com.sufy.sdk.services.object.model.Delete;
+import com.sufy.sdk.services.object.model.DeleteObjectsRequest;
+import com.sufy.sdk.services.object.model.DeleteObjectsResponse;
+import com.sufy.sdk.services.object.model.ObjectIdentifier;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 不同批大小下 deleteObjects 单次请求的耗时
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeleteObjectsBenchmark {
+    @Param({"10", "100", "1000"})
+    public int batchSize;
+
+    private MockObjectServer server;
+    private ObjectClient client;
+    private DeleteObjectsRequest request;
+    private List<String> keys;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = BenchmarkSupport.startServer();
+        client = BenchmarkSupport.newClient(server.getEndpoint(), BenchmarkSupport.newHttpClient());
+        BenchmarkSupport.createBucket(client);
+        keys = new ArrayList<>(batchSize);
+        List<ObjectIdentifier> identifiers = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            String key = String.format("delete-benchmark/%08d", i);
+            keys.add(key);
+            identifiers.add(ObjectIdentifier.builder().key(key).build());
+        }
+        request = DeleteObjectsRequest.builder()
+                .bucket(BenchmarkSupport.BUCKET)
+                .delete(Delete.builder().objects(identifiers).quiet(true).build())
+                .build();
+    }
+
+    // 每次调用前直接向替身存储写回被删除的对象，不计入测量
+    @Setup(Level.Invocation)
+    public void refill() {
+        byte[] body = new byte[0];
+        for (String key : keys) {
+            server.getStore().putObject(BenchmarkSupport.BUCKET, key, body,
+                    "application/octet-stream", "STANDARD", Map.of());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public DeleteObjectsResponse deleteObjects() {
+        return client.deleteObjects(request);
+    }
+}
@@ -0,0 +1,68 @@
+package com.sufy.benchmark;
+
+import com.sufy.mock.MockObjectServer;
+import com.sufy.sdk.services.object.ObjectClient;
+import com.sufy.sdk.services.object.model.ListObjectsV2Request;
+import com.sufy.sdk.services.object.model.ListObjectsV2Response;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按 continuationToken 翻页列举完整个前缀的耗时
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListObjectsBenchmark {
+    private static final String PREFIX = "list-benchmark/";
+    private static final int OBJECTS = 10000;
+
+    @Param({"100", "1000"})
+    public int maxKeys;
+
+    private MockObjectServer server;
+    private ObjectClient client;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = BenchmarkSupport.startServer();
+        client = BenchmarkSupport.newClient(server.getEndpoint(), BenchmarkSupport.newHttpClient());
+        BenchmarkSupport.createBucket(client);
+        // 直接写入替身存储，避免准备阶段占用大量时间
+        byte[] body = new byte[16];
+        for (int i = 0; i < OBJECTS; i++) {
+            server.getStore().putObject(BenchmarkSupport.BUCKET, String.format("%s%08d", PREFIX, i), body,
+                    "application/octet-stream", "STANDARD", Map.of());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public int listAllPages() {
+        int count = 0;
+        String token = null;
+        ListObjectsV2Response response;
+        do {
+            response = client.listObjectsV2(ListObjectsV2Request.builder()
+                    .bucket(BenchmarkSupport.BUCKET)
+                    .prefix(PREFIX)
+                    .maxKeys(maxKeys)
+                    .continuationToken(token)
+                    .build());
+            count += response.contents().size();
+            token = response.nextContinuationToken();
+        } while (response.isTruncated());
+        return count;
+    }
+}
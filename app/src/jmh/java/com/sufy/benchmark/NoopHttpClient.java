@@ -0,0 +1,79 @@
+package com.sufy.benchmark;
+
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.http.ExecutableHttpRequest;
+import software.amazon.awssdk.http.HttpExecuteRequest;
+import software.amazon.awssdk.http.HttpExecuteResponse;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.SdkHttpResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 不发网络请求的 HttpClient，直接返回 200，用于单独测量 SDK 的序列化与签名开销。
+ * 请求体会被读完，并以其 MD5 作为 ETag 返回，以通过 SDK 的上传校验。
+ */
+class NoopHttpClient implements SdkHttpClient {
+    // 最近一次请求的 Authorization 头，防止签名结果被 JIT 消除，也便于确认确实签过名
+    volatile String lastAuthorization;
+
+    @Override
+    public ExecutableHttpRequest prepareRequest(HttpExecuteRequest request) {
+        return new ExecutableHttpRequest() {
+            @Override
+            public HttpExecuteResponse call() throws IOException {
+                lastAuthorization = request.httpRequest().firstMatchingHeader("Authorization").orElse(null);
+                String eTag = "\"d41d8cd98f00b204e9800998ecf8427e\"";
+                if (request.contentStreamProvider().isPresent()) {
+                    eTag = "\"" + md5Hex(request.contentStreamProvider().get().newStream()) + "\"";
+                }
+                return HttpExecuteResponse.builder()
+                        .response(SdkHttpResponse.builder()
+                                .statusCode(200)
+                                .statusText("OK")
+                                .putHeader("ETag", eTag)
+                                .putHeader("Content-Length", "0")
+                                .putHeader("X-Sufy-Request-Id", "noop")
+                                .putHeader("X-Reqid", "noop")
+                                .build())
+                        .responseBody(AbortableInputStream.create(new ByteArrayInputStream(new byte[0])))
+                        .build();
+            }
+
+            @Override
+            public void abort() {
+            }
+        };
+    }
+
+    private static String md5Hex(InputStream in) throws IOException {
+        try (in) {
+            MessageDigest md5 = MessageDigest.getInstance("MD5");
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                md5.update(buffer, 0, n);
+            }
+            StringBuilder sb = new StringBuilder(32);
+            for (byte b : md5.digest()) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String clientName() {
+        return "noop";
+    }
+
+    @Override
+    public void close() {
+    }
+}
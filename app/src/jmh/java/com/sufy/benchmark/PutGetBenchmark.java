@@ -0,0 +1,76 @@
+package com.sufy.benchmark;
+
+import com.sufy.mock.MockObjectServer;
+import com.sufy.sdk.services.object.ObjectClient;
+import com.sufy.sdk.services.object.model.GetObjectRequest;
+import com.sufy.sdk.services.object.model.GetObjectResponse;
+import com.sufy.sdk.services.object.model.PutObjectRequest;
+import com.sufy.sdk.services.object.model.PutObjectResponse;
+import org.openjdk.jmh.annotations.*;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.RequestBody;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * putObject/getObject 在不同对象大小下的吞吐与分配率（配合 -prof gc）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PutGetBenchmark {
+    private static final String KEY = "put-get-benchmark";
+
+    // 1KB ~ 64MB
+    @Param({"1024", "65536", "1048576", "16777216", "67108864"})
+    public int payloadSize;
+
+    private MockObjectServer server;
+    private ObjectClient client;
+    private byte[] payload;
+    private byte[] readBuffer;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = BenchmarkSupport.startServer();
+        client = BenchmarkSupport.newClient(server.getEndpoint(), BenchmarkSupport.newHttpClient());
+        BenchmarkSupport.createBucket(client);
+        payload = new byte[payloadSize];
+        new Random(payloadSize).nextBytes(payload);
+        readBuffer = new byte[64 * 1024];
+        client.putObject(PutObjectRequest.builder().bucket(BenchmarkSupport.BUCKET).key(KEY).build(),
+                RequestBody.fromBytes(payload));
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public PutObjectResponse putObject() {
+        return client.putObject(PutObjectRequest.builder().bucket(BenchmarkSupport.BUCKET).key(KEY).build(),
+                RequestBody.fromBytes(payload));
+    }
+
+    @Benchmark
+    public long getObject() throws IOException {
+        long total = 0;
+        try (ResponseInputStream<GetObjectResponse> ris = client.getObject(GetObjectRequest.builder()
+                .bucket(BenchmarkSupport.BUCKET)
+                .key(KEY)
+                .build())) {
+            int n;
+            while ((n = ris.read(readBuffer)) >= 0) {
+                total += n;
+            }
+        }
+        return total;
+    }
+}
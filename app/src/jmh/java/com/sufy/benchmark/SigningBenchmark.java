@@ -0,0 +1,64 @@
+package com.sufy.benchmark;
+
+import com.sufy.sdk.services.object.ObjectClient;
+import com.sufy.sdk.services.object.model.HeadObjectRequest;
+import com.sufy.sdk.services.object.model.HeadObjectResponse;
+import com.sufy.sdk.services.object.model.PutObjectRequest;
+import com.sufy.sdk.services.object.model.PutObjectResponse;
+import org.openjdk.jmh.annotations.*;
+import software.amazon.awssdk.core.sync.RequestBody;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 不经过网络的完整请求路径：序列化、生成 "Sufy " Authorization 签名、反序列化。
+ * 小对象场景下这部分就是 SDK 自身的 CPU 开销。signer 为 caching 时使用 {@link com.sufy.signer.CachingSigner}，
+ * 与 default 对比即为签名快速路径的收益，配合 -prof gc 可以看到每次请求的分配量。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SigningBenchmark {
+    @Param({"default", "caching"})
+    public String signer;
+
+    private NoopHttpClient httpClient;
+    private ObjectClient client;
+    private HeadObjectRequest headRequest;
+    private PutObjectRequest putRequest;
+    private byte[] smallPayload;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        httpClient = new NoopHttpClient();
+        URI endpoint = URI.create("http://127.0.0.1:1");
+        client = "caching".equals(signer)
+                ? BenchmarkSupport.newCachingSignerClient(endpoint, httpClient)
+                : BenchmarkSupport.newClient(endpoint, httpClient);
+        headRequest = HeadObjectRequest.builder().bucket(BenchmarkSupport.BUCKET).key("signing-benchmark").build();
+        putRequest = PutObjectRequest.builder().bucket(BenchmarkSupport.BUCKET).key("signing-benchmark").build();
+        smallPayload = new byte[1024];
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        if (httpClient.lastAuthorization == null || !httpClient.lastAuthorization.startsWith("Sufy ")) {
+            throw new IllegalStateException("request was not signed: " + httpClient.lastAuthorization);
+        }
+        client.close();
+    }
+
+    @Benchmark
+    public HeadObjectResponse signHeadObject() {
+        return client.headObject(headRequest);
+    }
+
+    @Benchmark
+    public PutObjectResponse signPutObject1KB() {
+        return client.putObject(putRequest, RequestBody.fromBytes(smallPayload));
+    }
+}
@@ -0,0 +1,469 @@
+package com.sufy.cache;
+
+import com.sufy.sdk.services.object.ObjectClient;
+import com.sufy.sdk.services.object.model.GetObjectRequest;
+import com.sufy.sdk.services.object.model.GetObjectResponse;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.http.AbortableInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * getObject 的本地磁盘读穿缓存，适合反复读取的不可变对象（构建产物、模型文件等）。
+ * <p>
+ * 未命中时下载整个对象写入缓存目录，文件名由 bucket/key/ETag 决定；命中时从映射到内存的文件中
+ * 直接取出整个对象或请求的范围，不经过网络也不复制到堆内存。条目在 revalidateAfter 内直接使用，
+ * 超过后带 If-None-Match 发 GET 重新验证，304 时继续使用本地文件，200 时用新内容替换。
+ * <p>
+ * 按最近最少使用淘汰，缓存文件总大小不超过 maxBytes。索引只保存在内存中，
+ * 构造时会删除目录中由本类生成的遗留文件。被淘汰的文件已被映射时，
+ * 正在读取的流在 Linux 等系统上仍可读完，映射在缓冲区被回收后释放。
+ * <p>
+ * 带版本、条件、SSE-C、响应头覆盖等参数的请求，以及超过 maxObjectBytes 的对象不经过缓存。
+ */
+public class ContentCache {
+    private static final String FILE_SUFFIX = ".object";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final ObjectClient client;
+    private final Path directory;
+    private final long maxBytes;
+    private final long maxObjectBytes;
+    private final long revalidateAfterNanos;
+
+    // 访问顺序的 LinkedHashMap，表头为最久未使用的条目
+    private final LinkedHashMap<ObjectKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder revalidations = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder bypassed = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private record ObjectKey(String bucket, String key) {
+    }
+
+    private static final class Entry {
+        final Path file;
+        final long size;
+        // 完整对象的响应，范围读取时在此基础上修改长度与 Content-Range
+        final GetObjectResponse response;
+        final MappedByteBuffer mapped;
+        volatile long validatedAt;
+
+        Entry(Path file, long size, GetObjectResponse response, MappedByteBuffer mapped, long validatedAt) {
+            this.file = file;
+            this.size = size;
+            this.response = response;
+            this.mapped = mapped;
+            this.validatedAt = validatedAt;
+        }
+    }
+
+    public static class Stats {
+        public final long hits;
+        public final long misses;
+        public final long revalidations;
+        public final long notModified;
+        public final long bypassed;
+        public final long evictions;
+        public final long bytes;
+        public final int entries;
+
+        Stats(long hits, long misses, long revalidations, long notModified, long bypassed,
+              long evictions, long bytes, int entries) {
+            this.hits = hits;
+            this.misses = misses;
+            this.revalidations = revalidations;
+            this.notModified = notModified;
+            this.bypassed = bypassed;
+            this.evictions = evictions;
+            this.bytes = bytes;
+            this.entries = entries;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d, misses=%d, revalidations=%d (304=%d), bypassed=%d, evictions=%d, entries=%d, bytes=%d",
+                    hits, misses, revalidations, notModified, bypassed, evictions, entries, bytes);
+        }
+    }
+
+    private ContentCache(Builder builder) {
+        if (builder.client == null) {
+            throw new IllegalArgumentException("client must not be null");
+        }
+        if (builder.directory == null) {
+            throw new IllegalArgumentException("directory must not be null");
+        }
+        this.client = builder.client;
+        this.directory = builder.directory;
+        this.maxBytes = builder.maxBytes;
+        // 单个对象映射为一个缓冲区，不能超过 2GB
+        this.maxObjectBytes = Math.min(Integer.MAX_VALUE,
+                builder.maxObjectBytes > 0 ? builder.maxObjectBytes : builder.maxBytes / 4);
+        this.revalidateAfterNanos = builder.revalidateAfter.toNanos();
+        try {
+            Files.createDirectories(directory);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*{" + FILE_SUFFIX + "," + TEMP_SUFFIX + "}")) {
+                for (Path file : files) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private ObjectClient client;
+        private Path directory;
+        private long maxBytes = 1024L * 1024 * 1024;
+        private long maxObjectBytes;
+        private Duration revalidateAfter = Duration.ofSeconds(5);
+
+        public Builder client(ObjectClient client) {
+            this.client = client;
+            return this;
+        }
+
+        public Builder directory(Path directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        /**
+         * 缓存文件总大小上限
+         */
+        public Builder maxBytes(long maxBytes) {
+            if (maxBytes <= 0) {
+                throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+            }
+            this.maxBytes = maxBytes;
+            return this;
+        }
+
+        /**
+         * 超过该大小的对象不缓存，默认为 maxBytes 的四分之一
+         */
+        public Builder maxObjectBytes(long maxObjectBytes) {
+            if (maxObjectBytes <= 0) {
+                throw new IllegalArgumentException("maxObjectBytes must be positive: " + maxObjectBytes);
+            }
+            this.maxObjectBytes = maxObjectBytes;
+            return this;
+        }
+
+        /**
+         * 条目在这段时间内直接使用，超过后发条件请求验证，为 0 时每次都验证
+         */
+        public Builder revalidateAfter(Duration revalidateAfter) {
+            if (revalidateAfter.isNegative()) {
+                throw new IllegalArgumentException("revalidateAfter must not be negative: " + revalidateAfter);
+            }
+            this.revalidateAfter = revalidateAfter;
+            return this;
+        }
+
+        public ContentCache build() {
+            return new ContentCache(this);
+        }
+    }
+
+    /**
+     * 与 {@link ObjectClient#getObject(GetObjectRequest)} 用法相同，支持单个 Range
+     */
+    public ResponseInputStream<GetObjectResponse> getObject(GetObjectRequest request) {
+        if (!isCacheable(request)) {
+            bypassed.increment();
+            return client.getObject(request);
+        }
+        ObjectKey cacheKey = new ObjectKey(request.bucket(), request.key());
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(cacheKey);
+        }
+
+        GetObjectRequest fullRequest = request.toBuilder().range(null).build();
+        ResponseInputStream<GetObjectResponse> ris;
+        if (entry == null) {
+            misses.increment();
+            ris = client.getObject(fullRequest);
+        } else if (System.nanoTime() - entry.validatedAt < revalidateAfterNanos) {
+            hits.increment();
+            return serve(entry, request);
+        } else {
+            revalidations.increment();
+            try {
+                ris = client.getObject(fullRequest.toBuilder().ifNoneMatch(entry.response.eTag()).build());
+            } catch (SdkServiceException e) {
+                if (e.statusCode() != 304) {
+                    invalidate(request.bucket(), request.key());
+                    throw e;
+                }
+                notModified.increment();
+                entry.validatedAt = System.nanoTime();
+                return serve(entry, request);
+            }
+        }
+
+        // 对象内容变化或首次读取，下载整个对象后从缓存文件返回
+        long size = ris.response().contentLength();
+        if (size > maxObjectBytes) {
+            invalidate(request.bucket(), request.key());
+            bypassed.increment();
+            if (request.range() == null) {
+                return ris;
+            }
+            ris.abort();
+            return client.getObject(request);
+        }
+        return serve(store(cacheKey, ris), request);
+    }
+
+    public void invalidate(String bucket, String key) {
+        Entry removed;
+        synchronized (this) {
+            removed = entries.remove(new ObjectKey(bucket, key));
+            if (removed != null) {
+                totalBytes -= removed.size;
+            }
+        }
+        if (removed != null) {
+            deleteQuietly(removed.file);
+        }
+    }
+
+    public void invalidateAll() {
+        Map<ObjectKey, Entry> removed;
+        synchronized (this) {
+            removed = new LinkedHashMap<>(entries);
+            entries.clear();
+            totalBytes = 0;
+        }
+        removed.values().forEach(entry -> deleteQuietly(entry.file));
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), revalidations.sum(), notModified.sum(), bypassed.sum(),
+                evictions.sum(), totalBytes, entries.size());
+    }
+
+    private Entry store(ObjectKey cacheKey, ResponseInputStream<GetObjectResponse> ris) {
+        GetObjectResponse response = ris.response();
+        Path file = directory.resolve(fileName(cacheKey, response.eTag()) + FILE_SUFFIX);
+        Path temp = directory.resolve(UUID.randomUUID() + TEMP_SUFFIX);
+        long size;
+        try {
+            try (InputStream in = ris; OutputStream out = Files.newOutputStream(temp)) {
+                size = in.transferTo(out);
+            }
+            if (size != response.contentLength()) {
+                throw SdkClientException.create("Incomplete response body: expected " + response.contentLength()
+                        + " bytes, received " + size);
+            }
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw SdkClientException.create("Failed to cache object " + cacheKey.key, e);
+        } catch (RuntimeException e) {
+            deleteQuietly(temp);
+            throw e;
+        }
+
+        Entry entry;
+        synchronized (this) {
+            Entry existing = entries.get(cacheKey);
+            if (existing != null && existing.file.equals(file)) {
+                // 并发下载了同一版本，沿用已有文件
+                deleteQuietly(temp);
+                existing.validatedAt = System.nanoTime();
+                return existing;
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                entry = new Entry(file, size, response, map(file, size), System.nanoTime());
+            } catch (IOException e) {
+                deleteQuietly(temp);
+                throw SdkClientException.create("Failed to cache object " + cacheKey.key, e);
+            }
+            Entry replaced = entries.put(cacheKey, entry);
+            totalBytes += size;
+            if (replaced != null) {
+                totalBytes -= replaced.size;
+                deleteQuietly(replaced.file);
+            }
+            evictIfNeeded();
+        }
+        return entry;
+    }
+
+    // 调用方持有锁
+    private void evictIfNeeded() {
+        Iterator<Entry> it = entries.values().iterator();
+        // 最新放入的条目在表尾，总是保留
+        while (totalBytes > maxBytes && entries.size() > 1 && it.hasNext()) {
+            Entry eldest = it.next();
+            it.remove();
+            totalBytes -= eldest.size;
+            evictions.increment();
+            deleteQuietly(eldest.file);
+        }
+    }
+
+    private ResponseInputStream<GetObjectResponse> serve(Entry entry, GetObjectRequest request) {
+        long start = 0;
+        long end = entry.size - 1;
+        GetObjectResponse response = entry.response;
+        if (request.range() != null) {
+            long[] range = parseRange(request.range(), entry.size);
+            if (range == null) {
+                // 无法满足的范围交给服务端返回错误
+                bypassed.increment();
+                return client.getObject(request);
+            }
+            start = range[0];
+            end = range[1];
+            response = response.toBuilder()
+                    .contentLength(end - start + 1)
+                    .contentRange(String.format("bytes %d-%d/%d", start, end, entry.size))
+                    .build();
+        }
+        ByteBuffer slice = entry.mapped.duplicate();
+        slice.limit((int) (end + 1)).position((int) start);
+        return new ResponseInputStream<>(response, AbortableInputStream.create(new ByteBufferInputStream(slice)));
+    }
+
+    /**
+     * @return [start, end]，范围无法满足时为 null
+     */
+    static long[] parseRange(String range, long size) {
+        Matcher m = RANGE.matcher(range.trim());
+        if (!m.matches() || (m.group(1).isEmpty() && m.group(2).isEmpty())) {
+            return null;
+        }
+        long start;
+        long end;
+        if (m.group(1).isEmpty()) {
+            long suffix = Long.parseLong(m.group(2));
+            if (suffix == 0) {
+                return null;
+            }
+            start = Math.max(0, size - suffix);
+            end = size - 1;
+        } else {
+            start = Long.parseLong(m.group(1));
+            end = m.group(2).isEmpty() ? size - 1 : Math.min(Long.parseLong(m.group(2)), size - 1);
+        }
+        if (start >= size || start > end) {
+            return null;
+        }
+        return new long[]{start, end};
+    }
+
+    // 只缓存仅指定 bucket、key 与 Range 的请求，其他参数会改变响应内容或响应头
+    private static boolean isCacheable(GetObjectRequest request) {
+        return GetObjectRequest.builder()
+                .bucket(request.bucket())
+                .key(request.key())
+                .range(request.range())
+                .build()
+                .equalsBySdkFields(request);
+    }
+
+    private static MappedByteBuffer map(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    private static String fileName(ObjectKey cacheKey, String eTag) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            sha256.update((cacheKey.bucket + "/" + cacheKey.key + "/" + Objects.toString(eTag, ""))
+                    .getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(sha256.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // 删除失败的文件会在下次构造时清理
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.sufy.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.sufy.sdk.services.object.ObjectClient;
+import com.sufy.sdk.services.object.model.*;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.core.sync.RequestBody;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * headObject 与 getBucketLocation 的本地缓存，放在 {@link ObjectClient} 前面使用。
+ * <p>
+ * 缓存由 Caffeine 维护（W-TinyLFU 淘汰，按条数与写入后存活时间限制大小），
+ * 对象元数据在 revalidateAfter 内直接返回，超过后带 If-None-Match 发 HEAD 重新验证，
+ * 304 时沿用缓存的元数据，不再传输元数据以外的内容；bucket 区域不会变化，只按存活时间过期。
+ * <p>
+ * 经由本类发出的写操作（put、copy、delete、完成分片上传、删除 bucket）会使对应条目失效；
+ * 绕过本类直接写入的修改只能在下次重新验证时发现。
+ * 只有不带版本、条件、范围、分片号等参数的 HEAD 请求会使用缓存，其余请求直接转发。
+ */
+public class MetadataCache {
+    private final ObjectClient client;
+    private final long revalidateAfterNanos;
+    private final Ticker ticker;
+    private final Cache<ObjectKey, Entry> objects;
+    private final Cache<String, GetBucketLocationResponse> locations;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder revalidations = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+
+    private record ObjectKey(String bucket, String key) {
+    }
+
+    // response 为 null 的条目是未命中时放入的占位，表示 HEAD 请求正在进行
+    private static final class Entry {
+        final HeadObjectResponse response;
+        final long validatedAt;
+
+        Entry(HeadObjectResponse response, long validatedAt) {
+            this.response = response;
+            this.validatedAt = validatedAt;
+        }
+    }
+
+    public static class Stats {
+        public final long hits;
+        public final long misses;
+        public final long revalidations;
+        public final long notModified;
+
+        Stats(long hits, long misses, long revalidations, long notModified) {
+            this.hits = hits;
+            this.misses = misses;
+            this.revalidations = revalidations;
+            this.notModified = notModified;
+        }
+
+        /**
+         * 没有发出请求的命中次数占全部 headObject 的比例
+         */
+        public double hitRate() {
+            long total = hits + misses + revalidations;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d, misses=%d, revalidations=%d (304=%d), hitRate=%.3f",
+                    hits, misses, revalidations, notModified, hitRate());
+        }
+    }
+
+    private MetadataCache(Builder builder) {
+        if (builder.client == null) {
+            throw new IllegalArgumentException("client must not be null");
+        }
+        this.client = builder.client;
+        this.revalidateAfterNanos = builder.revalidateAfter.toNanos();
+        this.ticker = builder.ticker;
+        this.objects = Caffeine.newBuilder()
+                .maximumSize(builder.maximumSize)
+                .expireAfterWrite(builder.expireAfterWrite)
+                .ticker(ticker)
+                .build();
+        this.locations = Caffeine.newBuilder()
+                .maximumSize(builder.maximumSize)
+                .expireAfterWrite(builder.expireAfterWrite)
+                .ticker(ticker)
+                .build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private ObjectClient client;
+        private long maximumSize = 10_000;
+        private Duration expireAfterWrite = Duration.ofMinutes(10);
+        private Duration revalidateAfter = Duration.ofSeconds(5);
+        private Ticker ticker = Ticker.systemTicker();
+
+        public Builder client(ObjectClient client) {
+            this.client = client;
+            return this;
+        }
+
+        /**
+         * 对象元数据与 bucket 区域各自最多缓存的条数
+         */
+        public Builder maximumSize(long maximumSize) {
+            if (maximumSize <= 0) {
+                throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+            }
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * 条目写入后的最长存活时间，超过后重新请求，重新验证成功也会续期
+         */
+        public Builder expireAfterWrite(Duration expireAfterWrite) {
+            this.expireAfterWrite = Objects.requireNonNull(expireAfterWrite);
+            return this;
+        }
+
+        /**
+         * 对象元数据在这段时间内直接返回，超过后发条件请求验证，为 0 时每次都验证
+         */
+        public Builder revalidateAfter(Duration revalidateAfter) {
+            if (revalidateAfter.isNegative()) {
+                throw new IllegalArgumentException("revalidateAfter must not be negative: " + revalidateAfter);
+            }
+            this.revalidateAfter = revalidateAfter;
+            return this;
+        }
+
+        public Builder ticker(Ticker ticker) {
+            this.ticker = Objects.requireNonNull(ticker);
+            return this;
+        }
+
+        public MetadataCache build() {
+            return new MetadataCache(this);
+        }
+    }
+
+    public ObjectClient delegate() {
+        return client;
+    }
+
+    public HeadObjectResponse headObject(HeadObjectRequest request) {
+        if (!isCacheable(request)) {
+            return client.headObject(request);
+        }
+        ObjectKey cacheKey = new ObjectKey(request.bucket(), request.key());
+        Entry entry = objects.getIfPresent(cacheKey);
+        if (entry == null || entry.response == null) {
+            misses.increment();
+            // 发请求前先放入占位，期间经由本类的写入会移除占位，请求结果就不再放入缓存，避免写回写入前的元数据
+            Entry pending = new Entry(null, 0);
+            Entry existing = objects.asMap().putIfAbsent(cacheKey, pending);
+            Entry placeholder = existing != null ? existing : pending;
+            HeadObjectResponse response;
+            try {
+                response = client.headObject(request);
+            } catch (RuntimeException e) {
+                objects.asMap().remove(cacheKey, pending);
+                throw e;
+            }
+            objects.asMap().replace(cacheKey, placeholder, new Entry(response, ticker.read()));
+            return response;
+        }
+        long now = ticker.read();
+        if (now - entry.validatedAt < revalidateAfterNanos) {
+            hits.increment();
+            return entry.response;
+        }
+
+        revalidations.increment();
+        HeadObjectResponse response;
+        try {
+            response = client.headObject(request.toBuilder().ifNoneMatch(entry.response.eTag()).build());
+        } catch (SdkServiceException e) {
+            if (e.statusCode() == 304) {
+                notModified.increment();
+                // 以新条目替换，同时续期 expireAfterWrite
+                objects.asMap().replace(cacheKey, entry, new Entry(entry.response, now));
+                return entry.response;
+            }
+            objects.asMap().remove(cacheKey, entry);
+            throw e;
+        }
+        // 只替换发起验证时的条目，期间经由本类的写入已使其失效时不再放回
+        objects.asMap().replace(cacheKey, entry, new Entry(response, now));
+        return response;
+    }
+
+    public GetBucketLocationResponse getBucketLocation(GetBucketLocationRequest request) {
+        if (!GetBucketLocationRequest.builder().bucket(request.bucket()).build().equalsBySdkFields(request)) {
+            return client.getBucketLocation(request);
+        }
+        return locations.get(request.bucket(), bucket -> client.getBucketLocation(request));
+    }
+
+    public PutObjectResponse putObject(PutObjectRequest request, RequestBody requestBody) {
+        try {
+            return client.putObject(request, requestBody);
+        } finally {
+            invalidate(request.bucket(), request.key());
+        }
+    }
+
+    public CopyObjectResponse copyObject(CopyObjectRequest request) {
+        try {
+            return client.copyObject(request);
+        } finally {
+            invalidate(request.destinationBucket(), request.destinationKey());
+        }
+    }
+
+    public CompleteMultipartUploadResponse completeMultipartUpload(CompleteMultipartUploadRequest request) {
+        try {
+            return client.completeMultipartUpload(request);
+        } finally {
+            invalidate(request.bucket(), request.key());
+        }
+    }
+
+    public DeleteObjectResponse deleteObject(DeleteObjectRequest request) {
+        try {
+            return client.deleteObject(request);
+        } finally {
+            invalidate(request.bucket(), request.key());
+        }
+    }
+
+    public DeleteObjectsResponse deleteObjects(DeleteObjectsRequest request) {
+        try {
+            return client.deleteObjects(request);
+        } finally {
+            for (ObjectIdentifier id : request.delete().objects()) {
+                invalidate(request.bucket(), id.key());
+            }
+        }
+    }
+
+    public DeleteBucketResponse deleteBucket(DeleteBucketRequest request) {
+        try {
+            return client.deleteBucket(request);
+        } finally {
+            invalidateBucket(request.bucket());
+        }
+    }
+
+    public void invalidate(String bucket, String key) {
+        objects.invalidate(new ObjectKey(bucket, key));
+    }
+
+    public void invalidateBucket(String bucket) {
+        locations.invalidate(bucket);
+        objects.asMap().keySet().removeIf(k -> k.bucket.equals(bucket));
+    }
+
+    public void invalidateAll() {
+        objects.invalidateAll();
+        locations.invalidateAll();
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), revalidations.sum(), notModified.sum());
+    }
+
+    // 只缓存仅指定 bucket 与 key 的请求，版本、条件、范围、SSE-C 等参数会改变响应
+    private static boolean isCacheable(HeadObjectRequest request) {
+        return HeadObjectRequest.builder()
+                .bucket(request.bucket())
+                .key(request.key())
+                .build()
+                .equalsBySdkFields(request);
+    }
+}
@@ -0,0 +1,54 @@
+package com.sufy.config;
+
+import java.util.Collections;
+import java.util.Map;
+
+public class ClientConfig {
+    // test: 每个测试新建客户端；class: 同一个测试类共用；jvm: 整个测试进程共用
+    public String lifecycle;
+    public int maxConnections;
+    // 创建客户端后预先建立的连接数，0 表示不预热
+    public int warmupConnections;
+    // 异步客户端的最大并发连接数
+    public int maxAsyncConcurrency;
+    // submitAsyncTask 使用的线程：virtual 为每个任务一个虚拟线程（需要 Java 21），platform 为固定大小线程池
+    public String taskExecutor;
+    // submitAsyncTask 已提交未完成的任务数上限
+    public int maxInFlightTasks;
+    // 按操作名限制 submitAsyncTask 每秒开始的任务数，如 {"PutObject": 500}
+    public Map<String, Double> rateLimits;
+    // default: SDK 内置签名；caching: 缓存派生密钥、复用缓冲区的 CachingSigner
+    public String signer;
+
+    public String getLifecycle() {
+        return lifecycle == null ? "jvm" : lifecycle;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections <= 0 ? 100 : maxConnections;
+    }
+
+    public int getWarmupConnections() {
+        return warmupConnections;
+    }
+
+    public int getMaxAsyncConcurrency() {
+        return maxAsyncConcurrency <= 0 ? 200 : maxAsyncConcurrency;
+    }
+
+    public boolean isVirtualTaskExecutor() {
+        return !"platform".equalsIgnoreCase(taskExecutor);
+    }
+
+    public int getMaxInFlightTasks() {
+        return maxInFlightTasks <= 0 ? 1024 : maxInFlightTasks;
+    }
+
+    public Map<String, Double> getRateLimits() {
+        return rateLimits == null ? Collections.emptyMap() : rateLimits;
+    }
+
+    public boolean isCachingSigner() {
+        return "caching".equalsIgnoreCase(signer);
+    }
+}
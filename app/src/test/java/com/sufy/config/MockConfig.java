@@ -0,0 +1,19 @@
+package com.sufy.config;
+
+public class MockConfig {
+    public boolean enable;
+    public String host;
+    public int port;
+
+    public boolean isEnable() {
+        return enable;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+}
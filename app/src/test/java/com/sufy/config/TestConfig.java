@@ -1,6 +1,7 @@
 package com.sufy.config;
 
 import com.google.gson.Gson;
+import com.sufy.mock.MockObjectServer;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -8,9 +9,12 @@ import java.io.InputStream;
 public class TestConfig {
     public ProxyConfig proxy;
     public ObjectConfig object;
+    public MockConfig mock;
+    public ClientConfig client;
 
 
     private static TestConfig instance;
+    private static MockObjectServer mockServer;
 
     public static TestConfig load() throws IOException {
         if (instance != null) {
@@ -19,8 +23,23 @@ public class TestConfig {
         try (InputStream is = TestConfig.class.getResourceAsStream("/test-config.json")) {
             Gson gson = new Gson();
             assert is != null;
-            instance = gson.fromJson(new String(is.readAllBytes()), TestConfig.class);
+            TestConfig config = gson.fromJson(new String(is.readAllBytes()), TestConfig.class);
+            if (config.client == null) {
+                config.client = new ClientConfig();
+            }
+            // 启用本地替身时，整个 JVM 共用一个进程内服务，并把 endpoint 指向它
+            if (config.mock != null && config.mock.isEnable()) {
+                String host = config.mock.getHost() == null ? "127.0.0.1" : config.mock.getHost();
+                mockServer = MockObjectServer.start(host, config.mock.getPort(), config.object.getRegion());
+                config.object.endpoint = mockServer.getEndpoint().toString();
+                Runtime.getRuntime().addShutdownHook(new Thread(mockServer::close));
+            }
+            instance = config;
             return instance;
         }
     }
+
+    public static MockObjectServer getMockServer() {
+        return mockServer;
+    }
 }
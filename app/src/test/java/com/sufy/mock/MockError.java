@@ -0,0 +1,43 @@
+package com.sufy.mock;
+
+/**
+ * 模拟服务端返回的错误，由 {@link MockObjectServer} 统一序列化为 JSON 错误响应
+ */
+public class MockError extends RuntimeException {
+    private final int statusCode;
+    private final String code;
+
+    public MockError(int statusCode, String code, String message) {
+        super(message);
+        this.statusCode = statusCode;
+        this.code = code;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public static MockError noSuchBucket(String bucket) {
+        return new MockError(404, "NoSuchBucket", "The specified bucket does not exist: " + bucket);
+    }
+
+    public static MockError noSuchKey(String key) {
+        return new MockError(404, "NoSuchKey", "The specified key does not exist: " + key);
+    }
+
+    public static MockError noSuchUpload(String uploadId) {
+        return new MockError(404, "NoSuchUpload", "The specified upload does not exist: " + uploadId);
+    }
+
+    public static MockError invalidArgument(String message) {
+        return new MockError(400, "InvalidArgument", message);
+    }
+
+    public static MockError notImplemented() {
+        return new MockError(501, "NotImplemented", "A header you provided implies functionality that is not implemented");
+    }
+}
@@ -0,0 +1,878 @@
+package com.sufy.mock;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * 进程内的 Sufy 对象存储替身，基于 JDK 自带的 HttpServer 与 {@link MockObjectStore}。
+ * <p>
+ * 实现了测试用例用到的接口子集：对象的上传/下载/拷贝/删除、批量删除、列举 v1/v2、分片上传，
+ * 以及空间的 cors/tagging/lifecycle/policy/website 配置；ACL 接口与真实服务一样返回 501。
+ * 请求签名不做校验，所有响应都带有 X-Sufy-Request-Id 与 X-Reqid。
+ */
+public class MockObjectServer implements Closeable {
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter
+            .ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US)
+            .withZone(ZoneOffset.UTC);
+    private static final String META_PREFIX = "x-sufy-meta-";
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+    private static final String DEFAULT_STORAGE_CLASS = "STANDARD";
+    private static final int DEFAULT_MAX_KEYS = 1000;
+
+    // 子资源 -> 未配置时返回的错误码
+    private static final Map<String, String> SUB_RESOURCES = Map.of(
+            "cors", "NoSuchCORSConfiguration",
+            "tagging", "NoSuchTagSet",
+            "lifecycle", "NoSuchLifecycleConfiguration",
+            "policy", "NoSuchBucketPolicy",
+            "website", "NoSuchWebsiteConfiguration"
+    );
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final MockObjectStore store = new MockObjectStore();
+    private final String region;
+
+    private MockObjectServer(HttpServer server, String region) {
+        this.server = server;
+        this.region = region;
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "mock-object-server");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    /**
+     * 启动服务，port 为 0 时由系统分配空闲端口
+     */
+    public static MockObjectServer start(String host, int port, String region) throws IOException {
+        HttpServer httpServer = HttpServer.create(new InetSocketAddress(host, port), 1024);
+        MockObjectServer mock = new MockObjectServer(httpServer, region);
+        httpServer.start();
+        return mock;
+    }
+
+    public URI getEndpoint() {
+        InetSocketAddress address = server.getAddress();
+        return URI.create("http://" + address.getHostString() + ":" + address.getPort());
+    }
+
+    public MockObjectStore getStore() {
+        return store;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private static class Call {
+        HttpExchange exchange;
+        String method;
+        String bucket;
+        String key;
+        Map<String, String> query;
+        byte[] body;
+
+        String header(String name) {
+            return exchange.getRequestHeaders().getFirst(name);
+        }
+
+        String param(String name) {
+            return query.get(name);
+        }
+
+        boolean has(String name) {
+            return query.containsKey(name);
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String requestId = UUID.randomUUID().toString().replace("-", "");
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("X-Sufy-Request-Id", requestId);
+        headers.set("X-Reqid", requestId);
+        try {
+            Call call = parse(exchange);
+            dispatch(call);
+        } catch (MockError e) {
+            sendError(exchange, e, requestId);
+        } catch (Exception e) {
+            sendError(exchange, new MockError(500, "InternalError", String.valueOf(e)), requestId);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Call parse(HttpExchange exchange) throws IOException {
+        Call call = new Call();
+        call.exchange = exchange;
+        call.method = exchange.getRequestMethod();
+        call.query = parseQuery(exchange.getRequestURI().getRawQuery());
+        call.body = readBody(exchange);
+
+        String path = decode(exchange.getRequestURI().getRawPath());
+        if (path.startsWith("/")) {
+            path = path.substring(1);
+        }
+        String virtualHostBucket = virtualHostBucket(exchange.getRequestHeaders().getFirst("Host"));
+        if (virtualHostBucket != null) {
+            call.bucket = virtualHostBucket;
+            call.key = path.isEmpty() ? null : path;
+        } else if (!path.isEmpty()) {
+            int idx = path.indexOf('/');
+            call.bucket = idx < 0 ? path : path.substring(0, idx);
+            call.key = idx < 0 || idx == path.length() - 1 ? null : path.substring(idx + 1);
+        }
+        return call;
+    }
+
+    // 非 path style 时，Host 形如 {bucket}.{host}:{port}
+    private String virtualHostBucket(String host) {
+        if (host == null) {
+            return null;
+        }
+        String hostname = host.contains(":") ? host.substring(0, host.lastIndexOf(':')) : host;
+        String serverHost = server.getAddress().getHostString();
+        if (hostname.endsWith("." + serverHost)) {
+            return hostname.substring(0, hostname.length() - serverHost.length() - 1);
+        }
+        if (hostname.endsWith(".localhost")) {
+            return hostname.substring(0, hostname.length() - ".localhost".length());
+        }
+        return null;
+    }
+
+    private void dispatch(Call call) throws IOException {
+        if (call.bucket == null) {
+            if ("GET".equals(call.method)) {
+                listBuckets(call);
+                return;
+            }
+            throw MockError.notImplemented();
+        }
+        if (call.key == null) {
+            dispatchBucket(call);
+        } else {
+            dispatchObject(call);
+        }
+    }
+
+    private void dispatchBucket(Call call) throws IOException {
+        if (call.has("acl")) {
+            store.getBucket(call.bucket);
+            throw MockError.notImplemented();
+        }
+        for (Map.Entry<String, String> entry : SUB_RESOURCES.entrySet()) {
+            if (call.has(entry.getKey())) {
+                subResource(call, entry.getKey(), entry.getValue());
+                return;
+            }
+        }
+        if (call.has("policyStatus")) {
+            getBucketPolicyStatus(call);
+        } else if (call.has("location")) {
+            JSONObject body = new JSONObject();
+            body.put("locationConstraint", store.getBucket(call.bucket).region);
+            sendJson(call.exchange, 200, body);
+        } else if (call.has("uploads")) {
+            listMultipartUploads(call);
+        } else if (call.has("delete") && "POST".equals(call.method)) {
+            deleteObjects(call);
+        } else {
+            switch (call.method) {
+                case "PUT":
+                    createBucket(call);
+                    break;
+                case "HEAD":
+                    MockObjectStore.Bucket bucket = store.getBucket(call.bucket);
+                    call.exchange.getResponseHeaders().set("X-Sufy-Bucket-Region", bucket.region);
+                    sendEmpty(call.exchange, 200);
+                    break;
+                case "DELETE":
+                    store.deleteBucket(call.bucket);
+                    sendEmpty(call.exchange, 204);
+                    break;
+                case "GET":
+                    if ("2".equals(call.param("list-type"))) {
+                        listObjectsV2(call);
+                    } else {
+                        listObjects(call);
+                    }
+                    break;
+                default:
+                    throw MockError.notImplemented();
+            }
+        }
+    }
+
+    private void dispatchObject(Call call) throws IOException {
+        if (call.has("acl") || call.has("tagging")) {
+            throw MockError.notImplemented();
+        }
+        if (call.has("restore")) {
+            store.getObject(call.bucket, call.key);
+            sendEmpty(call.exchange, 202);
+        } else if (call.has("uploads") && "POST".equals(call.method)) {
+            createMultipartUpload(call);
+        } else if (call.has("uploadId")) {
+            switch (call.method) {
+                case "PUT":
+                    uploadPart(call);
+                    break;
+                case "POST":
+                    completeMultipartUpload(call);
+                    break;
+                case "GET":
+                    listParts(call);
+                    break;
+                case "DELETE":
+                    store.abortMultipartUpload(call.bucket, call.key, call.param("uploadId"));
+                    sendEmpty(call.exchange, 204);
+                    break;
+                default:
+                    throw MockError.notImplemented();
+            }
+        } else {
+            switch (call.method) {
+                case "PUT":
+                    if (call.header("x-sufy-copy-source") != null) {
+                        copyObject(call);
+                    } else {
+                        putObject(call);
+                    }
+                    break;
+                case "GET":
+                    getObject(call, false);
+                    break;
+                case "HEAD":
+                    getObject(call, true);
+                    break;
+                case "DELETE":
+                    store.deleteObject(call.bucket, call.key);
+                    sendEmpty(call.exchange, 204);
+                    break;
+                default:
+                    throw MockError.notImplemented();
+            }
+        }
+    }
+
+    // ---------------- service & bucket ----------------
+
+    private void listBuckets(Call call) throws IOException {
+        JSONArray buckets = new JSONArray();
+        store.listBuckets().stream()
+                .sorted(Comparator.comparing(b -> b.name))
+                .forEach(b -> {
+                    JSONObject item = new JSONObject();
+                    item.put("name", b.name);
+                    item.put("creationDate", isoDate(b.creationDate));
+                    item.put("locationConstraint", b.region);
+                    buckets.add(item);
+                });
+        JSONObject owner = new JSONObject();
+        owner.put("id", "mock-owner");
+        owner.put("displayName", "mock-owner");
+        JSONObject body = new JSONObject();
+        body.put("buckets", buckets);
+        body.put("owner", owner);
+        sendJson(call.exchange, 200, body);
+    }
+
+    private void createBucket(Call call) throws IOException {
+        String bucketRegion = region;
+        if (call.body.length > 0) {
+            JSONObject config = JSON.parseObject(new String(call.body, StandardCharsets.UTF_8));
+            String locationConstraint = field(config, "locationConstraint");
+            if (locationConstraint != null && !locationConstraint.isEmpty()) {
+                bucketRegion = locationConstraint;
+            }
+        }
+        store.createBucket(call.bucket, bucketRegion);
+        call.exchange.getResponseHeaders().set("Location", "/" + call.bucket);
+        sendEmpty(call.exchange, 200);
+    }
+
+    private void subResource(Call call, String name, String missingCode) throws IOException {
+        MockObjectStore.Bucket bucket = store.getBucket(call.bucket);
+        switch (call.method) {
+            case "PUT":
+                bucket.subResources.put(name, call.body);
+                sendEmpty(call.exchange, "policy".equals(name) || "tagging".equals(name) ? 204 : 200);
+                break;
+            case "GET":
+                byte[] config = bucket.subResources.get(name);
+                if (config == null) {
+                    throw new MockError(404, missingCode, "The " + name + " configuration does not exist");
+                }
+                call.exchange.getResponseHeaders().set("Content-Type", "application/json");
+                sendBody(call.exchange, 200, config, 0, config.length);
+                break;
+            case "DELETE":
+                bucket.subResources.remove(name);
+                sendEmpty(call.exchange, 204);
+                break;
+            default:
+                throw MockError.notImplemented();
+        }
+    }
+
+    // 策略中存在对所有人 Allow 的语句时，认为空间是公开的
+    private void getBucketPolicyStatus(Call call) throws IOException {
+        byte[] policy = store.getBucket(call.bucket).subResources.get("policy");
+        boolean isPublic = false;
+        if (policy != null) {
+            JSONArray statements = JSON.parseObject(new String(policy, StandardCharsets.UTF_8))
+                    .getJSONArray("Statement");
+            if (statements != null) {
+                for (int i = 0; i < statements.size(); i++) {
+                    JSONObject statement = statements.getJSONObject(i);
+                    if ("Allow".equals(statement.getString("Effect"))
+                            && "*".equals(String.valueOf(statement.get("Principal")))) {
+                        isPublic = true;
+                    }
+                }
+            }
+        }
+        JSONObject body = new JSONObject();
+        body.put("isPublic", isPublic);
+        sendJson(call.exchange, 200, body);
+    }
+
+    private void listObjects(Call call) throws IOException {
+        int maxKeys = intParam(call, "max-keys", DEFAULT_MAX_KEYS);
+        String marker = call.param("marker");
+        MockObjectStore.ListResult result = store.listObjects(
+                call.bucket, call.param("prefix"), call.param("delimiter"), marker, maxKeys);
+        JSONObject body = listBody(call, maxKeys, result);
+        body.put("marker", marker == null ? "" : marker);
+        if (result.truncated) {
+            body.put("nextMarker", result.lastEntry);
+        }
+        sendJson(call.exchange, 200, body);
+    }
+
+    private void listObjectsV2(Call call) throws IOException {
+        int maxKeys = intParam(call, "max-keys", DEFAULT_MAX_KEYS);
+        String continuationToken = call.param("continuation-token");
+        String startAfter = call.param("start-after");
+        String start = continuationToken != null && !continuationToken.isEmpty()
+                ? new String(Base64.getUrlDecoder().decode(continuationToken), StandardCharsets.UTF_8)
+                : startAfter;
+        MockObjectStore.ListResult result = store.listObjects(
+                call.bucket, call.param("prefix"), call.param("delimiter"), start, maxKeys);
+        JSONObject body = listBody(call, maxKeys, result);
+        body.put("keyCount", result.contents.size() + result.commonPrefixes.size());
+        if (continuationToken != null) {
+            body.put("continuationToken", continuationToken);
+        }
+        if (startAfter != null) {
+            body.put("startAfter", startAfter);
+        }
+        if (result.truncated) {
+            body.put("nextContinuationToken", Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(result.lastEntry.getBytes(StandardCharsets.UTF_8)));
+        }
+        sendJson(call.exchange, 200, body);
+    }
+
+    private JSONObject listBody(Call call, int maxKeys, MockObjectStore.ListResult result) {
+        JSONArray contents = new JSONArray();
+        for (MockObjectStore.StoredEntry entry : result.contents) {
+            JSONObject item = new JSONObject();
+            item.put("key", entry.key);
+            item.put("eTag", entry.object.eTag);
+            item.put("size", entry.object.data.length);
+            item.put("lastModified", isoDate(entry.object.lastModified));
+            item.put("storageClass", entry.object.storageClass);
+            contents.add(item);
+        }
+        JSONArray commonPrefixes = new JSONArray();
+        for (String prefix : result.commonPrefixes) {
+            JSONObject item = new JSONObject();
+            item.put("prefix", prefix);
+            commonPrefixes.add(item);
+        }
+        JSONObject body = new JSONObject();
+        body.put("name", call.bucket);
+        body.put("prefix", call.param("prefix") == null ? "" : call.param("prefix"));
+        if (call.param("delimiter") != null) {
+            body.put("delimiter", call.param("delimiter"));
+        }
+        body.put("maxKeys", maxKeys);
+        body.put("isTruncated", result.truncated);
+        body.put("contents", contents);
+        body.put("commonPrefixes", commonPrefixes);
+        return body;
+    }
+
+    private void deleteObjects(Call call) throws IOException {
+        store.getBucket(call.bucket);
+        JSONObject request = JSON.parseObject(new String(call.body, StandardCharsets.UTF_8));
+        JSONArray objects = request.getJSONArray("objects");
+        if (objects == null) {
+            objects = request.getJSONArray("Objects");
+        }
+        boolean quiet = Boolean.TRUE.equals(request.getBoolean("quiet"));
+        if (objects == null || objects.size() > 1000) {
+            throw new MockError(400, "MalformedXML", "The request must contain between 1 and 1000 objects");
+        }
+        JSONArray deleted = new JSONArray();
+        JSONArray errors = new JSONArray();
+        for (int i = 0; i < objects.size(); i++) {
+            String key = field(objects.getJSONObject(i), "key");
+            if (key == null || key.isEmpty()) {
+                JSONObject error = new JSONObject();
+                error.put("key", key);
+                error.put("code", "InvalidArgument");
+                error.put("message", "Object key must not be empty");
+                errors.add(error);
+                continue;
+            }
+            store.deleteObject(call.bucket, key);
+            if (!quiet) {
+                JSONObject item = new JSONObject();
+                item.put("key", key);
+                deleted.add(item);
+            }
+        }
+        JSONObject body = new JSONObject();
+        body.put("deleted", deleted);
+        body.put("errors", errors);
+        sendJson(call.exchange, 200, body);
+    }
+
+    private void listMultipartUploads(Call call) throws IOException {
+        String prefix = call.param("prefix") == null ? "" : call.param("prefix");
+        String keyMarker = call.param("key-marker");
+        String uploadIdMarker = call.param("upload-id-marker");
+        int maxUploads = intParam(call, "max-uploads", DEFAULT_MAX_KEYS);
+        List<MockObjectStore.Upload> uploads = store.getBucket(call.bucket).uploads.values().stream()
+                .filter(u -> u.key.startsWith(prefix))
+                .filter(u -> keyMarker == null || keyMarker.isEmpty()
+                        || u.key.compareTo(keyMarker) > 0
+                        || (u.key.equals(keyMarker) && uploadIdMarker != null && u.uploadId.compareTo(uploadIdMarker) > 0))
+                .sorted(Comparator.<MockObjectStore.Upload, String>comparing(u -> u.key).thenComparing(u -> u.uploadId))
+                .collect(Collectors.toList());
+        boolean truncated = uploads.size() > maxUploads;
+        if (truncated) {
+            uploads = uploads.subList(0, maxUploads);
+        }
+        JSONArray items = new JSONArray();
+        for (MockObjectStore.Upload upload : uploads) {
+            JSONObject item = new JSONObject();
+            item.put("key", upload.key);
+            item.put("uploadId", upload.uploadId);
+            item.put("initiated", isoDate(upload.initiated));
+            item.put("storageClass", upload.storageClass);
+            items.add(item);
+        }
+        JSONObject body = new JSONObject();
+        body.put("bucket", call.bucket);
+        body.put("prefix", prefix);
+        body.put("keyMarker", keyMarker == null ? "" : keyMarker);
+        body.put("uploadIdMarker", uploadIdMarker == null ? "" : uploadIdMarker);
+        body.put("maxUploads", maxUploads);
+        body.put("isTruncated", truncated);
+        if (truncated) {
+            MockObjectStore.Upload last = uploads.get(uploads.size() - 1);
+            body.put("nextKeyMarker", last.key);
+            body.put("nextUploadIdMarker", last.uploadId);
+        }
+        body.put("uploads", items);
+        sendJson(call.exchange, 200, body);
+    }
+
+    // ---------------- object ----------------
+
+    private void putObject(Call call) throws IOException {
+        MockObjectStore.StoredObject stored = store.putObject(call.bucket, call.key, call.body,
+                contentType(call), storageClass(call), metadata(call));
+        call.exchange.getResponseHeaders().set("ETag", stored.eTag);
+        sendEmpty(call.exchange, 200);
+    }
+
+    private void copyObject(Call call) throws IOException {
+        String[] source = copySource(call);
+        checkCopySourceConditions(call, store.getObject(source[0], source[1]));
+        boolean replace = "REPLACE".equalsIgnoreCase(call.header("x-sufy-metadata-directive"));
+        MockObjectStore.StoredObject stored = store.copyObject(source[0], source[1], call.bucket, call.key,
+                replace, contentType(call), call.header("x-sufy-storage-class"), metadata(call));
+        JSONObject body = new JSONObject();
+        body.put("eTag", stored.eTag);
+        body.put("lastModified", isoDate(stored.lastModified));
+        sendJson(call.exchange, 200, body);
+    }
+
+    private void getObject(Call call, boolean head) throws IOException {
+        MockObjectStore.StoredObject stored = store.getObject(call.bucket, call.key);
+        Headers headers = call.exchange.getResponseHeaders();
+        headers.set("ETag", stored.eTag);
+        headers.set("Last-Modified", HTTP_DATE.format(stored.lastModified));
+        headers.set("Content-Type", stored.contentType);
+        headers.set("Accept-Ranges", "bytes");
+        headers.set("X-Sufy-Storage-Class", stored.storageClass);
+        for (Map.Entry<String, String> entry : stored.metadata.entrySet()) {
+            headers.set(META_PREFIX + entry.getKey(), entry.getValue());
+        }
+
+        String ifMatch = call.header("If-Match");
+        if (ifMatch != null && !matchETag(ifMatch, stored.eTag)) {
+            throw new MockError(412, "PreconditionFailed", "At least one of the pre-conditions you specified did not hold");
+        }
+        String ifNoneMatch = call.header("If-None-Match");
+        if (ifNoneMatch != null && matchETag(ifNoneMatch, stored.eTag)) {
+            sendEmpty(call.exchange, 304);
+            return;
+        }
+
+        long total = stored.data.length;
+        long start = 0;
+        long end = total - 1;
+        int status = 200;
+        String range = call.header("Range");
+        if (range != null && range.startsWith("bytes=")) {
+            long[] r = parseRange(range.substring("bytes=".length()), total);
+            start = r[0];
+            end = r[1];
+            status = 206;
+            headers.set("Content-Range", String.format("bytes %d-%d/%d", start, end, total));
+        }
+        long length = end - start + 1;
+        if (head) {
+            headers.set("Content-Length", String.valueOf(length));
+            call.exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        sendBody(call.exchange, status, stored.data, (int) start, (int) length);
+    }
+
+    private void createMultipartUpload(Call call) throws IOException {
+        store.getBucket(call.bucket);
+        MockObjectStore.Upload upload = store.createMultipartUpload(call.bucket, call.key,
+                contentType(call), storageClass(call), metadata(call));
+        JSONObject body = new JSONObject();
+        body.put("bucket", call.bucket);
+        body.put("key", call.key);
+        body.put("uploadId", upload.uploadId);
+        sendJson(call.exchange, 200, body);
+    }
+
+    private void uploadPart(Call call) throws IOException {
+        String uploadId = call.param("uploadId");
+        int partNumber = intParam(call, "partNumber", 0);
+        if (call.header("x-sufy-copy-source") == null) {
+            MockObjectStore.Part part = store.uploadPart(call.bucket, call.key, uploadId, partNumber, call.body);
+            call.exchange.getResponseHeaders().set("ETag", part.eTag);
+            sendEmpty(call.exchange, 200);
+            return;
+        }
+        // uploadPartCopy
+        String[] source = copySource(call);
+        MockObjectStore.StoredObject sourceObject = store.getObject(source[0], source[1]);
+        checkCopySourceConditions(call, sourceObject);
+        byte[] data = sourceObject.data;
+        String range = call.header("x-sufy-copy-source-range");
+        if (range != null && range.startsWith("bytes=")) {
+            long[] r = parseRange(range.substring("bytes=".length()), data.length);
+            data = Arrays.copyOfRange(data, (int) r[0], (int) r[1] + 1);
+        }
+        MockObjectStore.Part part = store.uploadPart(call.bucket, call.key, uploadId, partNumber, data);
+        JSONObject body = new JSONObject();
+        body.put("eTag", part.eTag);
+        body.put("lastModified", isoDate(part.lastModified));
+        sendJson(call.exchange, 200, body);
+    }
+
+    private void completeMultipartUpload(Call call) throws IOException {
+        JSONObject request = JSON.parseObject(new String(call.body, StandardCharsets.UTF_8));
+        JSONArray parts = request == null ? null : request.getJSONArray("parts");
+        Map<Integer, String> partNumber2ETag = new HashMap<>();
+        if (parts != null) {
+            for (int i = 0; i < parts.size(); i++) {
+                JSONObject part = parts.getJSONObject(i);
+                partNumber2ETag.put(Integer.parseInt(field(part, "partNumber")), field(part, "eTag"));
+            }
+        }
+        MockObjectStore.StoredObject stored = store.completeMultipartUpload(
+                call.bucket, call.key, call.param("uploadId"), partNumber2ETag);
+        JSONObject body = new JSONObject();
+        body.put("location", "/" + call.bucket + "/" + call.key);
+        body.put("bucket", call.bucket);
+        body.put("key", call.key);
+        body.put("eTag", stored.eTag);
+        sendJson(call.exchange, 200, body);
+    }
+
+    private void listParts(Call call) throws IOException {
+        MockObjectStore.Upload upload = store.getUpload(call.bucket, call.key, call.param("uploadId"));
+        int maxParts = intParam(call, "max-parts", DEFAULT_MAX_KEYS);
+        int marker = intParam(call, "part-number-marker", 0);
+        List<MockObjectStore.Part> parts = new ArrayList<>(upload.parts.tailMap(marker, false).values());
+        boolean truncated = parts.size() > maxParts;
+        if (truncated) {
+            parts = parts.subList(0, maxParts);
+        }
+        JSONArray items = new JSONArray();
+        for (MockObjectStore.Part part : parts) {
+            JSONObject item = new JSONObject();
+            item.put("partNumber", part.partNumber);
+            item.put("eTag", part.eTag);
+            item.put("size", part.data.length);
+            item.put("lastModified", isoDate(part.lastModified));
+            items.add(item);
+        }
+        JSONObject body = new JSONObject();
+        body.put("bucket", call.bucket);
+        body.put("key", call.key);
+        body.put("uploadId", upload.uploadId);
+        body.put("partNumberMarker", marker);
+        body.put("maxParts", maxParts);
+        body.put("isTruncated", truncated);
+        if (!parts.isEmpty()) {
+            body.put("nextPartNumberMarker", parts.get(parts.size() - 1).partNumber);
+        }
+        body.put("storageClass", upload.storageClass);
+        body.put("parts", items);
+        sendJson(call.exchange, 200, body);
+    }
+
+    // ---------------- helpers ----------------
+
+    private String[] copySource(Call call) {
+        String source = decode(call.header("x-sufy-copy-source"));
+        int versionIdx = source.indexOf("?versionId=");
+        if (versionIdx >= 0) {
+            source = source.substring(0, versionIdx);
+        }
+        if (source.startsWith("/")) {
+            source = source.substring(1);
+        }
+        int idx = source.indexOf('/');
+        if (idx <= 0 || idx == source.length() - 1) {
+            throw MockError.invalidArgument("Invalid copy source: " + source);
+        }
+        return new String[]{source.substring(0, idx), source.substring(idx + 1)};
+    }
+
+    // 拷贝源的条件不满足时与 GET 不同，If-None-Match 命中也返回 412 而不是 304
+    private static void checkCopySourceConditions(Call call, MockObjectStore.StoredObject source) {
+        String ifMatch = call.header("x-sufy-copy-source-if-match");
+        String ifNoneMatch = call.header("x-sufy-copy-source-if-none-match");
+        if (ifMatch != null && !matchETag(ifMatch, source.eTag)
+                || ifNoneMatch != null && matchETag(ifNoneMatch, source.eTag)) {
+            throw new MockError(412, "PreconditionFailed", "At least one of the pre-conditions you specified did not hold");
+        }
+    }
+
+    private static String contentType(Call call) {
+        String contentType = call.header("Content-Type");
+        return contentType == null ? DEFAULT_CONTENT_TYPE : contentType;
+    }
+
+    private static String storageClass(Call call) {
+        String storageClass = call.header("x-sufy-storage-class");
+        return storageClass == null ? DEFAULT_STORAGE_CLASS : storageClass;
+    }
+
+    private static Map<String, String> metadata(Call call) {
+        Map<String, String> metadata = new HashMap<>();
+        for (Map.Entry<String, List<String>> entry : call.exchange.getRequestHeaders().entrySet()) {
+            String name = entry.getKey().toLowerCase(Locale.ROOT);
+            if (name.startsWith(META_PREFIX) && !entry.getValue().isEmpty()) {
+                metadata.put(name.substring(META_PREFIX.length()), entry.getValue().get(0));
+            }
+        }
+        return metadata;
+    }
+
+    private static boolean matchETag(String condition, String eTag) {
+        for (String candidate : condition.split(",")) {
+            String c = candidate.trim();
+            if ("*".equals(c) || MockObjectStore.unquote(c).equals(MockObjectStore.unquote(eTag))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 解析 a-b、a-、-n 三种形式，返回闭区间
+    private static long[] parseRange(String spec, long total) {
+        int idx = spec.indexOf('-');
+        if (idx < 0 || spec.contains(",")) {
+            throw new MockError(416, "InvalidRange", "The requested range is not satisfiable");
+        }
+        String first = spec.substring(0, idx).trim();
+        String last = spec.substring(idx + 1).trim();
+        long start;
+        long end;
+        if (first.isEmpty()) {
+            long suffix = Long.parseLong(last);
+            start = Math.max(0, total - suffix);
+            end = total - 1;
+        } else {
+            start = Long.parseLong(first);
+            end = last.isEmpty() ? total - 1 : Math.min(Long.parseLong(last), total - 1);
+        }
+        if (start >= total || start > end) {
+            throw new MockError(416, "InvalidRange", "The requested range is not satisfiable");
+        }
+        return new long[]{start, end};
+    }
+
+    private static int intParam(Call call, String name, int defaultValue) {
+        String value = call.param(name);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw MockError.invalidArgument("Invalid " + name + ": " + value);
+        }
+    }
+
+    // 兼容首字母大小写两种字段名
+    private static String field(JSONObject object, String name) {
+        if (object == null) {
+            return null;
+        }
+        Object value = object.get(name);
+        if (value == null) {
+            value = object.get(Character.toUpperCase(name.charAt(0)) + name.substring(1));
+        }
+        return value == null ? null : String.valueOf(value);
+    }
+
+    private static String isoDate(Instant instant) {
+        return DateTimeFormatter.ISO_INSTANT.format(instant.truncatedTo(ChronoUnit.MILLIS));
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int idx = pair.indexOf('=');
+            if (idx < 0) {
+                query.put(decode(pair), "");
+            } else {
+                query.put(decode(pair.substring(0, idx)), decode(pair.substring(idx + 1)));
+            }
+        }
+        return query;
+    }
+
+    // SDK 会把空格编码为 %20，这里不能把 + 当作空格
+    private static String decode(String s) {
+        return URLDecoder.decode(s.replace("+", "%2B"), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        byte[] raw = exchange.getRequestBody().readAllBytes();
+        Headers headers = exchange.getRequestHeaders();
+        String encoding = headers.getFirst("Content-Encoding");
+        String sha256 = headers.getFirst("x-sufy-content-sha256");
+        boolean chunked = (encoding != null && encoding.contains("chunked"))
+                || (sha256 != null && sha256.startsWith("STREAMING-"));
+        return chunked ? decodeChunkedPayload(raw) : raw;
+    }
+
+    // 解码带签名的分块上传格式：{hex-size};chunk-signature=...\r\n{data}\r\n ... 0;...\r\n
+    private static byte[] decodeChunkedPayload(byte[] raw) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length);
+        int pos = 0;
+        while (pos < raw.length) {
+            int lineEnd = pos;
+            while (lineEnd + 1 < raw.length && !(raw[lineEnd] == '\r' && raw[lineEnd + 1] == '\n')) {
+                lineEnd++;
+            }
+            String header = new String(raw, pos, lineEnd - pos, StandardCharsets.US_ASCII);
+            int semicolon = header.indexOf(';');
+            String sizeHex = (semicolon < 0 ? header : header.substring(0, semicolon)).trim();
+            if (sizeHex.isEmpty()) {
+                break;
+            }
+            int size = Integer.parseInt(sizeHex, 16);
+            if (size == 0) {
+                break;
+            }
+            int dataStart = lineEnd + 2;
+            out.write(raw, dataStart, size);
+            pos = dataStart + size + 2;
+        }
+        return out.toByteArray();
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, JSONObject body) throws IOException {
+        byte[] bytes = body.toJSONString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        sendBody(exchange, status, bytes, 0, bytes.length);
+    }
+
+    private static void sendEmpty(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    // HttpServer 约定：长度为 0 表示 chunked，空响应体需要传 -1
+    private static void sendBody(HttpExchange exchange, int status, byte[] data, int offset, int length) throws IOException {
+        if (length == 0) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(data, offset, length);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, MockError error, String requestId) throws IOException {
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(error.getStatusCode(), -1);
+            return;
+        }
+        JSONObject body = new JSONObject();
+        body.put("code", error.getCode());
+        body.put("message", error.getMessage());
+        body.put("requestId", requestId);
+        sendJson(exchange, error.getStatusCode(), body);
+    }
+}
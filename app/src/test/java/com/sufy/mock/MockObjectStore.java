@@ -0,0 +1,309 @@
+package com.sufy.mock;
+
+import java.io.ByteArrayOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * 内存中的对象存储，只实现测试用例所需的语义，所有数据在进程退出后丢失
+ */
+public class MockObjectStore {
+    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    public static class Bucket {
+        public final String name;
+        public final String region;
+        public final Instant creationDate;
+        // key 有序，便于按字典序列举
+        public final ConcurrentSkipListMap<String, StoredObject> objects = new ConcurrentSkipListMap<>();
+        // uploadId -> upload
+        public final ConcurrentHashMap<String, Upload> uploads = new ConcurrentHashMap<>();
+        // 子资源配置，如 cors/tagging/lifecycle/policy/website，原样保存请求体
+        public final ConcurrentHashMap<String, byte[]> subResources = new ConcurrentHashMap<>();
+
+        Bucket(String name, String region) {
+            this.name = name;
+            this.region = region;
+            this.creationDate = Instant.now();
+        }
+    }
+
+    public static class StoredObject {
+        public final byte[] data;
+        public final String eTag;
+        public final Instant lastModified;
+        public final String contentType;
+        public final String storageClass;
+        public final Map<String, String> metadata;
+
+        StoredObject(byte[] data, String eTag, String contentType, String storageClass, Map<String, String> metadata) {
+            this.data = data;
+            this.eTag = eTag;
+            this.lastModified = Instant.now();
+            this.contentType = contentType;
+            this.storageClass = storageClass;
+            this.metadata = metadata;
+        }
+    }
+
+    public static class Upload {
+        public final String key;
+        public final String uploadId;
+        public final Instant initiated;
+        public final String contentType;
+        public final String storageClass;
+        public final Map<String, String> metadata;
+        public final ConcurrentSkipListMap<Integer, Part> parts = new ConcurrentSkipListMap<>();
+
+        Upload(String key, String contentType, String storageClass, Map<String, String> metadata) {
+            this.key = key;
+            this.uploadId = UUID.randomUUID().toString().replace("-", "");
+            this.initiated = Instant.now();
+            this.contentType = contentType;
+            this.storageClass = storageClass;
+            this.metadata = metadata;
+        }
+    }
+
+    public static class Part {
+        public final int partNumber;
+        public final byte[] data;
+        public final String eTag;
+        public final Instant lastModified;
+
+        Part(int partNumber, byte[] data) {
+            this.partNumber = partNumber;
+            this.data = data;
+            this.eTag = quote(hex(md5(data)));
+            this.lastModified = Instant.now();
+        }
+    }
+
+    public static class ListResult {
+        public final List<StoredEntry> contents = new ArrayList<>();
+        public final List<String> commonPrefixes = new ArrayList<>();
+        public boolean truncated;
+        // 本页最后一个条目（对象 key 或公共前缀），作为下一页的起点
+        public String lastEntry;
+    }
+
+    public static class StoredEntry {
+        public final String key;
+        public final StoredObject object;
+
+        StoredEntry(String key, StoredObject object) {
+            this.key = key;
+            this.object = object;
+        }
+    }
+
+    public List<Bucket> listBuckets() {
+        return new ArrayList<>(buckets.values());
+    }
+
+    public Bucket createBucket(String name, String region) {
+        Bucket bucket = new Bucket(name, region);
+        if (buckets.putIfAbsent(name, bucket) != null) {
+            throw new MockError(409, "BucketAlreadyOwnedByYou", "Your previous request to create the named bucket succeeded and you already own it");
+        }
+        return bucket;
+    }
+
+    public Bucket getBucket(String name) {
+        Bucket bucket = buckets.get(name);
+        if (bucket == null) {
+            throw MockError.noSuchBucket(name);
+        }
+        return bucket;
+    }
+
+    public void deleteBucket(String name) {
+        Bucket bucket = getBucket(name);
+        if (!bucket.objects.isEmpty()) {
+            throw new MockError(409, "BucketNotEmpty", "The bucket you tried to delete is not empty");
+        }
+        buckets.remove(name, bucket);
+    }
+
+    public StoredObject putObject(String bucket, String key, byte[] data, String contentType,
+                                  String storageClass, Map<String, String> metadata) {
+        StoredObject object = new StoredObject(data, quote(hex(md5(data))), contentType, storageClass, metadata);
+        getBucket(bucket).objects.put(key, object);
+        return object;
+    }
+
+    public StoredObject getObject(String bucket, String key) {
+        StoredObject object = getBucket(bucket).objects.get(key);
+        if (object == null) {
+            throw MockError.noSuchKey(key);
+        }
+        return object;
+    }
+
+    public StoredObject copyObject(String srcBucket, String srcKey, String destBucket, String destKey,
+                                   boolean replaceMetadata, String contentType, String storageClass,
+                                   Map<String, String> metadata) {
+        StoredObject src = getObject(srcBucket, srcKey);
+        StoredObject dest = new StoredObject(
+                src.data,
+                src.eTag,
+                replaceMetadata ? contentType : src.contentType,
+                storageClass != null ? storageClass : src.storageClass,
+                replaceMetadata ? metadata : src.metadata
+        );
+        getBucket(destBucket).objects.put(destKey, dest);
+        return dest;
+    }
+
+    public boolean deleteObject(String bucket, String key) {
+        return getBucket(bucket).objects.remove(key) != null;
+    }
+
+    /**
+     * 按前缀与分隔符列举，start 为开区间起点（marker/startAfter/continuationToken）
+     */
+    public ListResult listObjects(String bucket, String prefix, String delimiter, String start, int maxKeys) {
+        Bucket b = getBucket(bucket);
+        String p = prefix == null ? "" : prefix;
+        ListResult result = new ListResult();
+        NavigableMap<String, StoredObject> view = b.objects;
+        if (start != null && !start.isEmpty()) {
+            view = view.tailMap(start, false);
+        } else if (!p.isEmpty()) {
+            view = view.tailMap(p, true);
+        }
+        int count = 0;
+        String lastPrefix = null;
+        for (Map.Entry<String, StoredObject> entry : view.entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith(p)) {
+                if (key.compareTo(p) > 0) {
+                    break;
+                }
+                continue;
+            }
+            // 上一页以公共前缀结束时，跳过该前缀下的剩余对象
+            if (start != null && delimiter != null && !delimiter.isEmpty()
+                    && start.endsWith(delimiter) && key.startsWith(start)) {
+                continue;
+            }
+            String commonPrefix = null;
+            if (delimiter != null && !delimiter.isEmpty()) {
+                int idx = key.indexOf(delimiter, p.length());
+                if (idx >= 0) {
+                    commonPrefix = key.substring(0, idx + delimiter.length());
+                }
+            }
+            if (commonPrefix != null && commonPrefix.equals(lastPrefix)) {
+                continue;
+            }
+            if (count >= maxKeys) {
+                result.truncated = true;
+                break;
+            }
+            if (commonPrefix != null) {
+                result.commonPrefixes.add(commonPrefix);
+                lastPrefix = commonPrefix;
+                result.lastEntry = commonPrefix;
+            } else {
+                result.contents.add(new StoredEntry(key, entry.getValue()));
+                result.lastEntry = key;
+            }
+            count++;
+        }
+        return result;
+    }
+
+    public Upload createMultipartUpload(String bucket, String key, String contentType,
+                                        String storageClass, Map<String, String> metadata) {
+        Upload upload = new Upload(key, contentType, storageClass, metadata);
+        getBucket(bucket).uploads.put(upload.uploadId, upload);
+        return upload;
+    }
+
+    public Upload getUpload(String bucket, String key, String uploadId) {
+        Upload upload = getBucket(bucket).uploads.get(uploadId);
+        if (upload == null || !upload.key.equals(key)) {
+            throw MockError.noSuchUpload(uploadId);
+        }
+        return upload;
+    }
+
+    public Part uploadPart(String bucket, String key, String uploadId, int partNumber, byte[] data) {
+        if (partNumber < 1 || partNumber > 10000) {
+            throw MockError.invalidArgument("Part number must be an integer between 1 and 10000, inclusive");
+        }
+        Part part = new Part(partNumber, data);
+        getUpload(bucket, key, uploadId).parts.put(partNumber, part);
+        return part;
+    }
+
+    public void abortMultipartUpload(String bucket, String key, String uploadId) {
+        getUpload(bucket, key, uploadId);
+        getBucket(bucket).uploads.remove(uploadId);
+    }
+
+    /**
+     * 按分片号顺序拼接分片，ETag 与服务端保持一致：md5(各分片md5拼接)-分片数
+     */
+    public StoredObject completeMultipartUpload(String bucket, String key, String uploadId,
+                                                Map<Integer, String> partNumber2ETag) {
+        Upload upload = getUpload(bucket, key, uploadId);
+        if (partNumber2ETag.isEmpty()) {
+            throw new MockError(400, "MalformedXML", "You must specify at least one part");
+        }
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        ByteArrayOutputStream digests = new ByteArrayOutputStream();
+        for (Map.Entry<Integer, String> entry : new TreeMap<>(partNumber2ETag).entrySet()) {
+            Part part = upload.parts.get(entry.getKey());
+            if (part == null || !part.eTag.equals(quote(unquote(entry.getValue())))) {
+                throw new MockError(400, "InvalidPart", "One or more of the specified parts could not be found");
+            }
+            data.writeBytes(part.data);
+            digests.writeBytes(md5(part.data));
+        }
+        String eTag = quote(hex(md5(digests.toByteArray())) + "-" + partNumber2ETag.size());
+        StoredObject object = new StoredObject(data.toByteArray(), eTag, upload.contentType,
+                upload.storageClass, upload.metadata);
+        Bucket b = getBucket(bucket);
+        b.objects.put(key, object);
+        b.uploads.remove(uploadId);
+        return object;
+    }
+
+    static byte[] md5(byte[] data) {
+        try {
+            return MessageDigest.getInstance("MD5").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    static String quote(String s) {
+        return "\"" + s + "\"";
+    }
+
+    static String unquote(String s) {
+        if (s != null && s.length() >= 2 && s.startsWith("\"") && s.endsWith("\"")) {
+            return s.substring(1, s.length() - 1);
+        }
+        return s;
+    }
+}
@@ -0,0 +1,527 @@
+package com.sufy.signer;
+
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.signer.Signer;
+import software.amazon.awssdk.http.ContentStreamProvider;
+import software.amazon.awssdk.http.SdkHttpFullRequest;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 生成 "Sufy " Authorization 的签名器，算法与 SDK 内置签名相同，省去每个请求都重复的计算：
+ * <ul>
+ *     <li>派生签名密钥只与日期、region、服务名有关，按日期缓存，每个线程还保留已用该密钥初始化的 Mac；</li>
+ *     <li>规范请求与待签字符串直接按字节写入线程私有的缓冲区并就地计算摘要，不生成中间 String；</li>
+ *     <li>X-Sufy-Date 在同一秒内复用。</li>
+ * </ul>
+ * 请求体的摘要在签名时读一遍请求体计算，已带 x-sufy-content-sha256 头时直接使用；请求体不分块签名。
+ * 异步请求签名时请求体还不可读，因此只用于同步客户端。
+ * 通过 {@code SdkAdvancedClientOption.SIGNER} 设置到客户端上，一个签名器对应一组凭证、region 与服务名。
+ */
+public class CachingSigner implements Signer {
+    public static final String ALGORITHM = "Sufy";
+    public static final String DATE_HEADER = "X-Sufy-Date";
+    public static final String CONTENT_SHA256_HEADER = "x-sufy-content-sha256";
+    // 与 SDK 内置签名使用的签名服务名一致，由 testCachingSigner 对照 SDK 实际签出的 Credential 校验
+    public static final String DEFAULT_SERVICE_NAME = "s3";
+    private static final String SECRET_KEY_PREFIX = "Sufy";
+    private static final String TERMINATOR = "sufy_request";
+    private static final String EMPTY_BODY_SHA256 = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+    // 与 SDK 一致，这些头可能被代理或 http client 改写，不参与签名
+    private static final Set<String> IGNORED_HEADERS = Set.of("connection", "x-amzn-trace-id", "user-agent", "expect");
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX_UPPER = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+    private static final String HOST = "Host";
+
+    private final String accessKeyId;
+    private final byte[] secretKey;
+    private final String region;
+    private final String serviceName;
+    private final Clock clock;
+    // 日期 yyyyMMdd -> 派生的签名密钥
+    private final Map<String, SigningKey> signingKeys = new ConcurrentHashMap<>();
+    private final ThreadLocal<State> states = ThreadLocal.withInitial(State::new);
+
+    private static final class SigningKey {
+        final byte[] day;
+        final String scope;
+        final SecretKeySpec key;
+
+        SigningKey(byte[] day, String scope, SecretKeySpec key) {
+            this.day = day;
+            this.scope = scope;
+            this.key = key;
+        }
+    }
+
+    /**
+     * 每个线程一份的可复用状态
+     */
+    private static final class State {
+        final MessageDigest sha256;
+        final Mac mac;
+        final byte[] digest = new byte[32];
+        final byte[] readBuffer = new byte[8192];
+        final byte[] utf8 = new byte[4];
+        final StringBuilder authorization = new StringBuilder(256);
+        byte[] buf = new byte[1024];
+        int len;
+        String[] names = new String[32];
+        // 当前 Mac 初始化时使用的密钥
+        SigningKey key;
+        long second = Long.MIN_VALUE;
+        String dateTime;
+        final byte[] dateTimeBytes = new byte[16];
+
+        State() {
+            try {
+                sha256 = MessageDigest.getInstance("SHA-256");
+                mac = Mac.getInstance("HmacSHA256");
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void write(byte b) {
+            if (len == buf.length) {
+                buf = Arrays.copyOf(buf, len * 2);
+            }
+            buf[len++] = b;
+        }
+
+        void write(byte[] bytes, int off, int count) {
+            if (len + count > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(len + count, len * 2));
+            }
+            System.arraycopy(bytes, off, buf, len, count);
+            len += count;
+        }
+
+        // 只用于 ASCII 内容
+        void write(CharSequence s) {
+            for (int i = 0; i < s.length(); i++) {
+                write((byte) s.charAt(i));
+            }
+        }
+
+        void writeHex(byte[] bytes, int count) {
+            for (int i = 0; i < count; i++) {
+                write(HEX[(bytes[i] >> 4) & 0xf]);
+                write(HEX[bytes[i] & 0xf]);
+            }
+        }
+    }
+
+    private CachingSigner(Builder builder) {
+        if (builder.accessKeyId == null || builder.secretAccessKey == null || builder.region == null) {
+            throw new IllegalArgumentException("accessKeyId, secretAccessKey and region must not be null");
+        }
+        this.accessKeyId = builder.accessKeyId;
+        this.secretKey = (SECRET_KEY_PREFIX + builder.secretAccessKey).getBytes(StandardCharsets.UTF_8);
+        this.region = builder.region;
+        this.serviceName = builder.serviceName;
+        this.clock = builder.clock;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private String accessKeyId;
+        private String secretAccessKey;
+        private String region;
+        private String serviceName = DEFAULT_SERVICE_NAME;
+        private Clock clock = Clock.systemUTC();
+
+        public Builder accessKeyId(String accessKeyId) {
+            this.accessKeyId = accessKeyId;
+            return this;
+        }
+
+        public Builder secretAccessKey(String secretAccessKey) {
+            this.secretAccessKey = secretAccessKey;
+            return this;
+        }
+
+        public Builder region(String region) {
+            this.region = region;
+            return this;
+        }
+
+        /**
+         * 签名范围中的服务名
+         */
+        public Builder serviceName(String serviceName) {
+            this.serviceName = serviceName;
+            return this;
+        }
+
+        public Builder clock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public CachingSigner build() {
+            return new CachingSigner(this);
+        }
+    }
+
+    @Override
+    public SdkHttpFullRequest sign(SdkHttpFullRequest request, ExecutionAttributes executionAttributes) {
+        return sign(request);
+    }
+
+    public SdkHttpFullRequest sign(SdkHttpFullRequest request) {
+        State state = states.get();
+        String dateTime = dateTime(state);
+        SigningKey key = signingKey(state);
+        String host = hostHeader(request);
+        String contentSha256 = request.firstMatchingHeader(CONTENT_SHA256_HEADER)
+                .orElseGet(() -> contentSha256(state, request));
+
+        // 规范请求
+        state.len = 0;
+        state.write(request.method().name());
+        state.write((byte) '\n');
+        String path = request.encodedPath();
+        state.write(path == null || path.isEmpty() ? "/" : path);
+        state.write((byte) '\n');
+        writeCanonicalQuery(state, request.rawQueryParameters());
+        state.write((byte) '\n');
+        int headerCount = collectHeaderNames(state, request.headers());
+        for (int i = 0; i < headerCount; i++) {
+            String name = state.names[i];
+            writeLowerCase(state, name);
+            state.write((byte) ':');
+            if (name == HOST) {
+                state.write(host);
+            } else if (name == DATE_HEADER) {
+                state.write(state.dateTimeBytes, 0, 16);
+            } else if (name == CONTENT_SHA256_HEADER) {
+                state.write(contentSha256);
+            } else {
+                writeHeaderValues(state, request.headers().get(name));
+            }
+            state.write((byte) '\n');
+        }
+        state.write((byte) '\n');
+        int signedHeadersStart = state.len;
+        for (int i = 0; i < headerCount; i++) {
+            if (i > 0) {
+                state.write((byte) ';');
+            }
+            writeLowerCase(state, state.names[i]);
+        }
+        int signedHeadersEnd = state.len;
+        state.write((byte) '\n');
+        state.write(contentSha256);
+
+        StringBuilder authorization = state.authorization;
+        authorization.setLength(0);
+        authorization.append(ALGORITHM).append(" Credential=").append(accessKeyId).append('/').append(key.scope)
+                .append(", SignedHeaders=");
+        for (int i = signedHeadersStart; i < signedHeadersEnd; i++) {
+            authorization.append((char) state.buf[i]);
+        }
+        authorization.append(", Signature=");
+
+        MessageDigest sha256 = state.sha256;
+        sha256.update(state.buf, 0, state.len);
+        digestInto(sha256, state.digest);
+
+        // 待签字符串
+        state.len = 0;
+        state.write(ALGORITHM);
+        state.write((byte) '\n');
+        state.write(state.dateTimeBytes, 0, 16);
+        state.write((byte) '\n');
+        state.write(key.scope);
+        state.write((byte) '\n');
+        state.writeHex(state.digest, 32);
+
+        Mac mac = state.mac;
+        mac.update(state.buf, 0, state.len);
+        try {
+            mac.doFinal(state.digest, 0);
+        } catch (GeneralSecurityException e) {
+            throw SdkClientException.create("Failed to sign request", e);
+        }
+        for (int i = 0; i < 32; i++) {
+            authorization.append((char) HEX[(state.digest[i] >> 4) & 0xf]).append((char) HEX[state.digest[i] & 0xf]);
+        }
+
+        SdkHttpFullRequest.Builder signed = request.toBuilder()
+                .putHeader(HOST, host)
+                .putHeader(DATE_HEADER, dateTime)
+                .putHeader("Authorization", authorization.toString());
+        if (request.firstMatchingHeader(CONTENT_SHA256_HEADER).isEmpty()) {
+            signed.putHeader(CONTENT_SHA256_HEADER, contentSha256);
+        }
+        return signed.build();
+    }
+
+    private String dateTime(State state) {
+        long now = clock.millis() / 1000;
+        if (now != state.second) {
+            LocalDateTime t = LocalDateTime.ofEpochSecond(now, 0, ZoneOffset.UTC);
+            byte[] b = state.dateTimeBytes;
+            writeDigits(b, 0, t.getYear(), 4);
+            writeDigits(b, 4, t.getMonthValue(), 2);
+            writeDigits(b, 6, t.getDayOfMonth(), 2);
+            b[8] = 'T';
+            writeDigits(b, 9, t.getHour(), 2);
+            writeDigits(b, 11, t.getMinute(), 2);
+            writeDigits(b, 13, t.getSecond(), 2);
+            b[15] = 'Z';
+            state.second = now;
+            state.dateTime = new String(b, StandardCharsets.US_ASCII);
+        }
+        return state.dateTime;
+    }
+
+    private static void writeDigits(byte[] b, int offset, int value, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            b[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    // 当前日期的签名密钥，线程内日期不变时直接复用已初始化的 Mac
+    private SigningKey signingKey(State state) {
+        SigningKey key = state.key;
+        if (key != null && Arrays.equals(key.day, 0, 8, state.dateTimeBytes, 0, 8)) {
+            return key;
+        }
+        String day = new String(state.dateTimeBytes, 0, 8, StandardCharsets.US_ASCII);
+        key = signingKeys.computeIfAbsent(day, this::deriveSigningKey);
+        // 只保留最近的日期，跨天后旧密钥不再需要
+        if (signingKeys.size() > 2) {
+            signingKeys.keySet().removeIf(d -> d.compareTo(day) < 0);
+        }
+        try {
+            state.mac.init(key.key);
+        } catch (GeneralSecurityException e) {
+            throw SdkClientException.create("Failed to initialize signing key", e);
+        }
+        state.key = key;
+        return key;
+    }
+
+    private SigningKey deriveSigningKey(String day) {
+        byte[] kDate = hmac(secretKey, day);
+        byte[] kRegion = hmac(kDate, region);
+        byte[] kService = hmac(kRegion, serviceName);
+        byte[] kSigning = hmac(kService, TERMINATOR);
+        String scope = day + "/" + region + "/" + serviceName + "/" + TERMINATOR;
+        return new SigningKey(day.getBytes(StandardCharsets.US_ASCII), scope, new SecretKeySpec(kSigning, "HmacSHA256"));
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw SdkClientException.create("Failed to derive signing key", e);
+        }
+    }
+
+    private static String hostHeader(SdkHttpFullRequest request) {
+        int port = request.port();
+        boolean standardPort = "http".equals(request.protocol()) && port == 80
+                || "https".equals(request.protocol()) && port == 443;
+        return standardPort || port <= 0 ? request.host() : request.host() + ":" + port;
+    }
+
+    private static String contentSha256(State state, SdkHttpFullRequest request) {
+        if (request.contentStreamProvider().isEmpty()) {
+            return EMPTY_BODY_SHA256;
+        }
+        ContentStreamProvider provider = request.contentStreamProvider().get();
+        MessageDigest sha256 = state.sha256;
+        try (InputStream in = provider.newStream()) {
+            int n;
+            while ((n = in.read(state.readBuffer)) >= 0) {
+                sha256.update(state.readBuffer, 0, n);
+            }
+        } catch (IOException e) {
+            sha256.reset();
+            throw SdkClientException.create("Failed to hash request body", e);
+        }
+        digestInto(sha256, state.digest);
+        char[] hex = new char[64];
+        for (int i = 0; i < 32; i++) {
+            hex[2 * i] = (char) HEX[(state.digest[i] >> 4) & 0xf];
+            hex[2 * i + 1] = (char) HEX[state.digest[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    private static void digestInto(MessageDigest digest, byte[] out) {
+        try {
+            digest.digest(out, 0, 32);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // 参与签名的头名按小写排序放入 state.names，Host、日期与请求体摘要由签名器提供
+    private static int collectHeaderNames(State state, Map<String, List<String>> headers) {
+        int count = 0;
+        String[] names = state.names;
+        if (names.length < headers.size() + 3) {
+            names = state.names = new String[headers.size() + 3];
+        }
+        for (String name : headers.keySet()) {
+            if (name.equalsIgnoreCase(HOST) || name.equalsIgnoreCase(DATE_HEADER)
+                    || name.equalsIgnoreCase(CONTENT_SHA256_HEADER) || name.equalsIgnoreCase("Authorization")
+                    || isIgnored(name)) {
+                continue;
+            }
+            names[count++] = name;
+        }
+        names[count++] = HOST;
+        names[count++] = DATE_HEADER;
+        names[count++] = CONTENT_SHA256_HEADER;
+        Arrays.sort(names, 0, count, String.CASE_INSENSITIVE_ORDER);
+        return count;
+    }
+
+    private static boolean isIgnored(String name) {
+        for (String ignored : IGNORED_HEADERS) {
+            if (ignored.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void writeLowerCase(State state, String name) {
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            state.write((byte) (c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c));
+        }
+    }
+
+    // 多个值以逗号连接，去掉首尾空白并把连续空白压缩为一个空格
+    private static void writeHeaderValues(State state, List<String> values) {
+        for (int v = 0; v < values.size(); v++) {
+            if (v > 0) {
+                state.write((byte) ',');
+            }
+            String value = values.get(v);
+            boolean pendingSpace = false;
+            boolean started = false;
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == ' ' || c == '\t') {
+                    pendingSpace = started;
+                    continue;
+                }
+                if (pendingSpace) {
+                    state.write((byte) ' ');
+                    pendingSpace = false;
+                }
+                int count = utf8(value, i, state.utf8);
+                state.write(state.utf8, 0, count);
+                if (count == 4) {
+                    i++;
+                }
+                started = true;
+            }
+        }
+    }
+
+    private static void writeCanonicalQuery(State state, Map<String, List<String>> parameters) {
+        if (parameters.isEmpty()) {
+            return;
+        }
+        String[] names = parameters.keySet().toArray(new String[0]);
+        Arrays.sort(names);
+        boolean first = true;
+        for (String name : names) {
+            List<String> values = parameters.get(name);
+            if (values == null || values.isEmpty()) {
+                values = Collections.singletonList(null);
+            } else if (values.size() > 1) {
+                String[] sorted = values.stream().map(v -> v == null ? "" : v).sorted().toArray(String[]::new);
+                values = Arrays.asList(sorted);
+            }
+            for (String value : values) {
+                if (!first) {
+                    state.write((byte) '&');
+                }
+                first = false;
+                writeUriEncoded(state, name);
+                state.write((byte) '=');
+                if (value != null) {
+                    writeUriEncoded(state, value);
+                }
+            }
+        }
+    }
+
+    // RFC 3986 编码，只保留非保留字符
+    private static void writeUriEncoded(State state, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c >= '0' && c <= '9'
+                    || c == '-' || c == '_' || c == '.' || c == '~') {
+                state.write((byte) c);
+                continue;
+            }
+            int count = utf8(s, i, state.utf8);
+            if (count == 4) {
+                i++;
+            }
+            for (int j = 0; j < count; j++) {
+                state.write((byte) '%');
+                state.write(HEX_UPPER[(state.utf8[j] >> 4) & 0xf]);
+                state.write(HEX_UPPER[state.utf8[j] & 0xf]);
+            }
+        }
+    }
+
+    // s[i] 的 UTF-8 编码写入 out，返回字节数；4 字节时占用 s[i] 与 s[i + 1] 两个 char
+    private static int utf8(String s, int i, byte[] out) {
+        char c = s.charAt(i);
+        if (c < 0x80) {
+            out[0] = (byte) c;
+            return 1;
+        }
+        if (c < 0x800) {
+            out[0] = (byte) (0xc0 | (c >> 6));
+            out[1] = (byte) (0x80 | (c & 0x3f));
+            return 2;
+        }
+        if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+            int cp = Character.toCodePoint(c, s.charAt(i + 1));
+            out[0] = (byte) (0xf0 | (cp >> 18));
+            out[1] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+            out[2] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+            out[3] = (byte) (0x80 | (cp & 0x3f));
+            return 4;
+        }
+        out[0] = (byte) (0xe0 | (c >> 12));
+        out[1] = (byte) (0x80 | ((c >> 6) & 0x3f));
+        out[2] = (byte) (0x80 | (c & 0x3f));
+        return 3;
+    }
+}
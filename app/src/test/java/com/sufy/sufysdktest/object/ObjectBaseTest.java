@@ -1,72 +1,73 @@
 package com.sufy.sufysdktest.object;
 
+import com.sufy.config.ClientConfig;
 import com.sufy.config.ObjectConfig;
 import com.sufy.config.ProxyConfig;
 import com.sufy.config.TestConfig;
-import com.sufy.sdk.auth.credentials.StaticCredentialsProvider;
-import com.sufy.sdk.auth.credentials.SufyBasicCredentials;
+import com.sufy.sdk.services.object.ObjectAsyncClient;
 import com.sufy.sdk.services.object.ObjectClient;
 import com.sufy.sdk.services.object.model.*;
+import com.sufy.transfer.BatchUploader;
+import com.sufy.transfer.BulkDeleter;
 import com.sufy.util.HttpClientRecorder;
+import com.sufy.util.RequestMetrics;
+import com.sufy.util.SeededPayload;
+import com.sufy.util.TaskScope;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.http.SdkHttpRequest;
 import software.amazon.awssdk.http.SdkHttpResponse;
-import software.amazon.awssdk.http.apache.ApacheHttpClient;
-import software.amazon.awssdk.http.apache.ProxyConfiguration;
-import software.amazon.awssdk.regions.Region;
 
 import java.io.IOException;
 import java.net.URI;
-import java.time.Duration;
-import java.util.Random;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class ObjectBaseTest {
-    private ExecutorService threadPool;
+    // 整个测试进程共享，退出时导出为 JSON，作为本次运行所对接服务的性能概况
+    private static RequestMetrics requestMetrics;
+    // 在途异步请求数上限，达到上限时提交线程等待，避免请求在 http client 中排队超时
+    private static final int MAX_ASYNC_REQUESTS_IN_FLIGHT = 1000;
+    // 测试数据的种子，可以通过 -Dsufy.payload.seed 固定以便复现
+    private static final long PAYLOAD_SEED = Long.getLong("sufy.payload.seed", System.nanoTime());
+    private static final AtomicLong payloadCounter = new AtomicLong();
+
+    private TaskScope taskScope;
     protected ObjectConfig config;
     protected ProxyConfig proxyConfig;
+    protected ClientConfig clientConfig;
     protected ObjectClient object;
     protected HttpClientRecorder recorder;
+    private SharedObjectClient sharedClient;
+    private final Semaphore asyncRequestPermits = new Semaphore(MAX_ASYNC_REQUESTS_IN_FLIGHT);
+    private final Queue<CompletableFuture<?>> asyncRequests = new ConcurrentLinkedQueue<>();
 
     @BeforeEach
     public void setup() throws IOException {
-        this.config = TestConfig.load().object;
-        this.proxyConfig = TestConfig.load().proxy;
-
-        ApacheHttpClient.Builder apacheHttpClientBuilder = ApacheHttpClient.builder()
-                .maxConnections(100)
-                .connectionTimeout(Duration.ofSeconds(5));
-        if (proxyConfig != null && proxyConfig.isEnable()) {
-            apacheHttpClientBuilder.proxyConfiguration(ProxyConfiguration.builder()
-                    .endpoint(
-                            URI.create(
-                                    proxyConfig.getType() + "://" + proxyConfig.getHost() + ":" + proxyConfig.getPort()
-                            )
-                    ).build()
-            );
-        }
-        this.recorder = new HttpClientRecorder(apacheHttpClientBuilder.build());
-
-        this.object = ObjectClient.builder()
-                .region(Region.of(config.getRegion())) // 华东区 region id
-                .endpointOverride(URI.create(config.getEndpoint()))
-                .forcePathStyle(config.isForcePathStyle())
-                .credentialsProvider(
-                        StaticCredentialsProvider.create(
-                                SufyBasicCredentials.create(
-                                        config.getAccessKey(), config.getSecretKey()
-                                )
-                        )
-                )
-                .httpClient(recorder)
-                .build();
+        TestConfig testConfig = TestConfig.load();
+        this.config = testConfig.object;
+        this.proxyConfig = testConfig.proxy;
+        this.clientConfig = testConfig.client;
+
+        // 客户端与连接池按配置在测试之间复用，recorder 在每个测试开始前重置
+        this.sharedClient = SharedObjectClient.acquire(
+                getClass(), config, proxyConfig, clientConfig, sharedRequestMetrics(config)
+        );
+        this.recorder = sharedClient.recorder;
+        this.object = sharedClient.object;
 
         // 测试环境中，每次测试前都清空 bucket 中的文件
         makeSureBucketExists();
@@ -75,7 +76,21 @@ public class ObjectBaseTest {
 
     @AfterEach
     public void teardown() {
-        this.object.close();
+        if (taskScope != null) {
+            taskScope.close();
+            taskScope = null;
+        }
+        this.sharedClient.release();
+    }
+
+    private static synchronized RequestMetrics sharedRequestMetrics(ObjectConfig config) {
+        if (requestMetrics == null) {
+            requestMetrics = new RequestMetrics(config.isForcePathStyle(), URI.create(config.getEndpoint()).getHost());
+            requestMetrics.exportOnShutdown(Path.of(
+                    System.getProperty("sufy.metrics.output", "build/request-metrics.json")
+            ));
+        }
+        return requestMetrics;
     }
 
     protected void checkPublicRequestHeader(SdkHttpRequest request) {
@@ -139,8 +154,36 @@ public class ObjectBaseTest {
         );
     }
 
+    // 批量准备测试文件，内容由 key 计算；并发数不超过连接池大小，PutObject 的速率限制与 submitAsyncTask 相同
+    protected void prepareTestFiles(Collection<String> keys, UnaryOperator<String> content) {
+        try (BatchUploader uploader = BatchUploader.builder()
+                .client(object)
+                .concurrency(Math.min(clientConfig.getMaxConnections(), 32))
+                .putsPerSecond(clientConfig.getRateLimits().getOrDefault("PutObject", 0.0))
+                .build()) {
+            BatchUploader.Result result = uploader.upload(getBucketName(),
+                    keys.stream().map(key -> BatchUploader.Item.of(key, content.apply(key))));
+            assertTrue(result.failed.isEmpty(), () -> "Failed to prepare test files: " + result.failed);
+        }
+    }
+
+    // 批量准备测试文件，内容与 key 相同
+    protected void prepareTestFiles(Collection<String> keys) {
+        prepareTestFiles(keys, key -> key);
+    }
+
+    // 准备一组并发任务，默认每个任务一个虚拟线程，不支持虚拟线程时使用 nThreads 个平台线程；
+    // 在途任务数与各操作的速率按配置限制，超过时 submitAsyncTask 阻塞
     protected void prepareAsyncEnv(int nThreads) {
-        threadPool = Executors.newFixedThreadPool(nThreads);
+        if (taskScope != null) {
+            taskScope.close();
+        }
+        taskScope = TaskScope.builder()
+                .virtualThreads(clientConfig.isVirtualTaskExecutor())
+                .threads(nThreads)
+                .maxInFlight(clientConfig.getMaxInFlightTasks())
+                .rateLimits(clientConfig.getRateLimits())
+                .build();
     }
 
     protected void prepareAsyncEnv() {
@@ -148,24 +191,66 @@ public class ObjectBaseTest {
     }
 
     protected void submitAsyncTask(Runnable task) {
-        threadPool.submit(task);
+        taskScope.submit(task);
     }
 
+    // operation 为接口名，如 PutObject，用于匹配配置中的速率限制
+    protected void submitAsyncTask(String operation, Runnable task) {
+        taskScope.submit(operation, task);
+    }
+
+    // 等待所有任务结束，任一任务失败时取消其余任务并把异常抛给测试
     protected void awaitAllAsyncTasks() {
-        threadPool.shutdown();
+        TaskScope scope = taskScope;
+        taskScope = null;
         try {
-            boolean terminated;
-            do {
-                terminated = threadPool.awaitTermination(1, TimeUnit.SECONDS);
-            } while (!terminated);
+            scope.join();
         } catch (InterruptedException e) {
-            e.printStackTrace();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for async tasks", e);
+        }
+    }
+
+    // 基于 CRT http client 的异步客户端，请求不经过 recorder
+    protected ObjectAsyncClient asyncObject() {
+        return sharedClient.asyncObject();
+    }
+
+    // 发起一个异步请求，在途请求达到上限时阻塞等待，由 awaitAllAsyncRequests 统一等待结果
+    protected <T> CompletableFuture<T> submitAsyncRequest(Function<ObjectAsyncClient, CompletableFuture<T>> request) {
+        asyncRequestPermits.acquireUninterruptibly();
+        CompletableFuture<T> future;
+        try {
+            future = request.apply(asyncObject());
+        } catch (RuntimeException e) {
+            asyncRequestPermits.release();
+            throw e;
+        }
+        future.whenComplete((r, e) -> asyncRequestPermits.release());
+        asyncRequests.add(future);
+        return future;
+    }
+
+    // 等待所有已提交的异步请求完成，有请求失败时抛出其中一个异常
+    protected void awaitAllAsyncRequests() {
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        CompletableFuture<?> future;
+        while ((future = asyncRequests.poll()) != null) {
+            futures.add(future);
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
         }
     }
 
     // 删除一个测试文件
     protected void deleteTestFile(String key) {
-        threadPool.submit(() -> {
+        submitAsyncTask("DeleteObject", () -> {
             object.deleteObject(DeleteObjectRequest.builder()
                     .bucket(getBucketName())
                     .key(key)
@@ -175,40 +260,22 @@ public class ObjectBaseTest {
     }
 
     // 清理测试环境所有文件
+    // 有对象删除失败时测试直接失败，避免带着上一个测试的残留文件开始
     protected void cleanAllFiles() {
-        // 定义批量删除请求
-        String bucketName = getBucketName();
-        ListObjectsV2Request listReq = ListObjectsV2Request.builder().bucket(bucketName).build();
-        ListObjectsV2Response listRes;
-        prepareAsyncEnv();
-        do {
-            // 列出存储桶中的对象
-            listRes = object.listObjectsV2(listReq);
-            // 构建批量删除请求
-
-            // 删除对象
-            final ListObjectsV2Response finalListRes = listRes;
-            submitAsyncTask(() -> object.deleteObjects(DeleteObjectsRequest.builder()
-                    .bucket(bucketName)
-                    .delete(Delete.builder()
-                            .objects(finalListRes.contents().stream()
-                                    .map(o -> ObjectIdentifier.builder().key(o.key()).build())
-                                    .collect(Collectors.toList()))
-                            .build()
-                    )
-                    .build()
-            ));
-            listReq = ListObjectsV2Request.builder()
-                    .bucket(bucketName)
-                    .continuationToken(listRes.nextContinuationToken())
-                    .build();
-        } while (listRes.isTruncated());
-        awaitAllAsyncTasks();
+        BulkDeleter.Result result = purgeBucket(getBucketName());
+        assertTrue(result.failed.isEmpty(), () -> "Failed to clean bucket " + getBucketName() + ": " + result.failed);
+    }
+
+    // 清空指定 bucket，列举与删除流水线进行，删除失败的 key 在结果中
+    protected BulkDeleter.Result purgeBucket(String bucketName) {
+        try (BulkDeleter deleter = BulkDeleter.builder().client(object).build()) {
+            return deleter.purgeBucket(bucketName);
+        }
     }
 
     protected void forceDeleteBucket(String bucketName) {
         try {
-            cleanAllFiles();
+            purgeBucket(bucketName);
             object.deleteBucket(req -> req.bucket(bucketName).build());
         } catch (Exception e) {
             // ignore
@@ -231,9 +298,12 @@ public class ObjectBaseTest {
         }
     }
 
+    // 按种子生成测试数据，内容可以在任意位置重新计算，用于流式上传与下载校验
+    protected SeededPayload payload(long size) {
+        return new SeededPayload(PAYLOAD_SEED + payloadCounter.incrementAndGet(), size);
+    }
+
     protected byte[] randomBytes(int size) {
-        byte[] bytes = new byte[size];
-        new Random().nextBytes(bytes);
-        return bytes;
+        return payload(size).bytes();
     }
 }
@@ -0,0 +1,245 @@
+package com.sufy.sufysdktest.object;
+
+import com.sufy.config.ClientConfig;
+import com.sufy.config.ObjectConfig;
+import com.sufy.config.ProxyConfig;
+import com.sufy.sdk.auth.credentials.StaticCredentialsProvider;
+import com.sufy.sdk.auth.credentials.SufyBasicCredentials;
+import com.sufy.sdk.services.object.ObjectAsyncClient;
+import com.sufy.sdk.services.object.ObjectClient;
+import com.sufy.signer.CachingSigner;
+import com.sufy.util.HttpClientRecorder;
+import com.sufy.util.RequestMetrics;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.client.config.SdkAdvancedClientOption;
+import software.amazon.awssdk.http.HttpExecuteRequest;
+import software.amazon.awssdk.http.HttpExecuteResponse;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.SdkHttpFullRequest;
+import software.amazon.awssdk.http.SdkHttpMethod;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.apache.ProxyConfiguration;
+import software.amazon.awssdk.http.crt.AwsCrtAsyncHttpClient;
+import software.amazon.awssdk.regions.Region;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 测试共用的 ObjectClient 与连接池。
+ * <p>
+ * 按 {@link ClientConfig#getLifecycle()} 决定复用范围：test 每个测试新建，class 在测试类切换时重建，
+ * jvm 整个进程只建一次。新建时可以预先并发建立若干连接，后续测试直接复用热连接。
+ * 共享期间每个测试开始时都会重置 recorder，测试之间的录制互不影响。
+ */
+public final class SharedObjectClient {
+    public enum Lifecycle {
+        TEST, CLASS, JVM
+    }
+
+    private static final int WARMUP_TIMEOUT_SECONDS = 10;
+
+    private static SharedObjectClient current;
+    private static Class<?> currentOwner;
+    private static boolean shutdownHookRegistered;
+
+    public final ObjectClient object;
+    public final HttpClientRecorder recorder;
+    private final Lifecycle lifecycle;
+    private final ObjectConfig config;
+    private final ProxyConfig proxyConfig;
+    private final ClientConfig clientConfig;
+    // 按需创建，不经过 recorder，请求不会被录制也不计入请求统计
+    private ObjectAsyncClient asyncObject;
+
+    private SharedObjectClient(ObjectClient object, HttpClientRecorder recorder, Lifecycle lifecycle,
+                               ObjectConfig config, ProxyConfig proxyConfig, ClientConfig clientConfig) {
+        this.object = object;
+        this.recorder = recorder;
+        this.lifecycle = lifecycle;
+        this.config = config;
+        this.proxyConfig = proxyConfig;
+        this.clientConfig = clientConfig;
+    }
+
+    /**
+     * 获取 owner 测试类可用的客户端，recorder 已重置
+     */
+    public static synchronized SharedObjectClient acquire(Class<?> owner, ObjectConfig config, ProxyConfig proxyConfig,
+                                                          ClientConfig clientConfig, RequestMetrics metrics) {
+        Lifecycle lifecycle = Lifecycle.valueOf(clientConfig.getLifecycle().toUpperCase(Locale.ROOT));
+        if (current != null && (lifecycle == Lifecycle.TEST
+                || lifecycle == Lifecycle.CLASS && owner != currentOwner)) {
+            current.close();
+            current = null;
+        }
+        if (current == null) {
+            current = create(config, proxyConfig, clientConfig, metrics, lifecycle);
+            currentOwner = owner;
+            if (!shutdownHookRegistered) {
+                Runtime.getRuntime().addShutdownHook(new Thread(SharedObjectClient::closeCurrent));
+                shutdownHookRegistered = true;
+            }
+        }
+        current.recorder.reset();
+        return current;
+    }
+
+    /**
+     * 测试结束时调用，只有 test 生命周期会真正关闭客户端
+     */
+    public void release() {
+        if (lifecycle == Lifecycle.TEST) {
+            closeCurrent();
+        }
+    }
+
+    private static synchronized void closeCurrent() {
+        if (current != null) {
+            current.close();
+            current = null;
+            currentOwner = null;
+        }
+    }
+
+    /**
+     * 基于 CRT http client 的异步客户端，与同步客户端同生命周期，少量事件循环线程即可承载大量并发请求
+     */
+    public synchronized ObjectAsyncClient asyncObject() {
+        if (asyncObject == null) {
+            AwsCrtAsyncHttpClient.Builder crtHttpClientBuilder = AwsCrtAsyncHttpClient.builder()
+                    .maxConcurrency(clientConfig.getMaxAsyncConcurrency())
+                    .connectionTimeout(Duration.ofSeconds(5));
+            if (proxyConfig != null && proxyConfig.isEnable()) {
+                crtHttpClientBuilder.proxyConfiguration(software.amazon.awssdk.http.crt.ProxyConfiguration.builder()
+                        .scheme(proxyConfig.getType())
+                        .host(proxyConfig.getHost())
+                        .port(proxyConfig.getPort())
+                        .build()
+                );
+            }
+            asyncObject = ObjectAsyncClient.builder()
+                    .region(Region.of(config.getRegion()))
+                    .endpointOverride(URI.create(config.getEndpoint()))
+                    .forcePathStyle(config.isForcePathStyle())
+                    .credentialsProvider(
+                            StaticCredentialsProvider.create(
+                                    SufyBasicCredentials.create(
+                                            config.getAccessKey(), config.getSecretKey()
+                                    )
+                            )
+                    )
+                    // 由 SDK 管理 http client 的生命周期，关闭 asyncObject 时一并关闭
+                    .httpClientBuilder(crtHttpClientBuilder)
+                    .build();
+        }
+        return asyncObject;
+    }
+
+    private synchronized void close() {
+        object.close();
+        recorder.close();
+        if (asyncObject != null) {
+            asyncObject.close();
+            asyncObject = null;
+        }
+    }
+
+    private static SharedObjectClient create(ObjectConfig config, ProxyConfig proxyConfig, ClientConfig clientConfig,
+                                             RequestMetrics metrics, Lifecycle lifecycle) {
+        ApacheHttpClient.Builder apacheHttpClientBuilder = ApacheHttpClient.builder()
+                .maxConnections(clientConfig.getMaxConnections())
+                .connectionTimeout(Duration.ofSeconds(5));
+        if (proxyConfig != null && proxyConfig.isEnable()) {
+            apacheHttpClientBuilder.proxyConfiguration(ProxyConfiguration.builder()
+                    .endpoint(
+                            URI.create(
+                                    proxyConfig.getType() + "://" + proxyConfig.getHost() + ":" + proxyConfig.getPort()
+                            )
+                    ).build()
+            );
+        }
+        SdkHttpClient httpClient = apacheHttpClientBuilder.build();
+        warmUp(httpClient, URI.create(config.getEndpoint()),
+                Math.min(clientConfig.getWarmupConnections(), clientConfig.getMaxConnections()));
+        HttpClientRecorder recorder = new HttpClientRecorder(httpClient, metrics);
+
+        ObjectClient object = ObjectClient.builder()
+                .region(Region.of(config.getRegion())) // 华东区 region id
+                .endpointOverride(URI.create(config.getEndpoint()))
+                .forcePathStyle(config.isForcePathStyle())
+                .credentialsProvider(
+                        StaticCredentialsProvider.create(
+                                SufyBasicCredentials.create(
+                                        config.getAccessKey(), config.getSecretKey()
+                                )
+                        )
+                )
+                .httpClient(recorder)
+                .overrideConfiguration(overrideConfiguration(config, clientConfig))
+                .build();
+        return new SharedObjectClient(object, recorder, lifecycle, config, proxyConfig, clientConfig);
+    }
+
+    // 按配置替换同步客户端的签名器，默认使用 SDK 内置签名；
+    // 异步客户端签名时拿不到请求体，不能计算请求体摘要，始终使用内置签名
+    private static ClientOverrideConfiguration overrideConfiguration(ObjectConfig config, ClientConfig clientConfig) {
+        ClientOverrideConfiguration.Builder builder = ClientOverrideConfiguration.builder();
+        if (clientConfig.isCachingSigner()) {
+            builder.putAdvancedOption(SdkAdvancedClientOption.SIGNER, CachingSigner.builder()
+                    .accessKeyId(config.getAccessKey())
+                    .secretAccessKey(config.getSecretKey())
+                    .region(config.getRegion())
+                    .build()
+            );
+        }
+        return builder.build();
+    }
+
+    /**
+     * 并发向 endpoint 发送 connections 个不签名的 HEAD 请求，全部收到响应后才释放连接，
+     * 这样每个请求占用一条独立连接，结束后都留在连接池中。直接使用底层 http client，不计入请求统计。
+     */
+    private static void warmUp(SdkHttpClient httpClient, URI endpoint, int connections) {
+        if (connections <= 0) {
+            return;
+        }
+        SdkHttpFullRequest request = SdkHttpFullRequest.builder()
+                .method(SdkHttpMethod.HEAD)
+                .uri(endpoint)
+                .build();
+        CyclicBarrier barrier = new CyclicBarrier(connections);
+        ExecutorService pool = Executors.newFixedThreadPool(connections);
+        for (int i = 0; i < connections; i++) {
+            pool.submit(() -> {
+                HttpExecuteResponse response = null;
+                try {
+                    response = httpClient.prepareRequest(HttpExecuteRequest.builder().request(request).build()).call();
+                    barrier.await(WARMUP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    // ignore, 预热失败不影响测试，只是第一次请求时再建立连接
+                } finally {
+                    if (response != null && response.responseBody().isPresent()) {
+                        try {
+                            response.responseBody().get().close();
+                        } catch (IOException e) {
+                            // ignore
+                        }
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        try {
+            pool.awaitTermination(2 * WARMUP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
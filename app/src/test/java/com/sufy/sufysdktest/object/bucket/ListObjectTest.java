@@ -2,6 +2,8 @@ package com.sufy.sufysdktest.object.bucket;
 
 import com.sufy.sdk.services.object.model.*;
 import com.sufy.sufysdktest.object.ObjectBaseTest;
+import com.sufy.transfer.ListObjectsPaginator;
+import com.sufy.transfer.ParallelLister;
 import com.sufy.util.HttpClientRecorder;
 import org.junit.jupiter.api.Test;
 import software.amazon.awssdk.http.SdkHttpMethod;
@@ -9,7 +11,12 @@ import software.amazon.awssdk.http.SdkHttpRequest;
 import software.amazon.awssdk.http.SdkHttpResponse;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -29,9 +36,7 @@ public class ListObjectTest extends ObjectBaseTest {
         List<String> keys = new ArrayList<>();
         for (int i = 0; i < N; i++) keys.add(prefix + "test-list-objects-v1-" + i);
         for (int i = 0; i < N; i++) keys.add(subdir + "test-list-objects-v1-" + i);
-        prepareAsyncEnv();
-        for (String key : keys) submitAsyncTask(() -> prepareTestFile(key, key));
-        awaitAllAsyncTasks();
+        prepareTestFiles(keys);
 
         recorder.startRecording();
         {
@@ -129,9 +134,7 @@ public class ListObjectTest extends ObjectBaseTest {
         List<String> keys = new ArrayList<>();
         for (int i = 0; i < N; i++) keys.add(prefix + "test-list-objects-v2-" + i);
         for (int i = 0; i < N; i++) keys.add(subdir + "test-list-objects-v2-" + i);
-        prepareAsyncEnv();
-        for (String key : keys) submitAsyncTask(() -> prepareTestFile(key, key));
-        awaitAllAsyncTasks();
+        prepareTestFiles(keys);
 
         recorder.startRecording();
         {
@@ -221,4 +224,99 @@ public class ListObjectTest extends ObjectBaseTest {
         assertEquals("OK", resp2.statusText().orElseThrow());
     }
 
-}
\ No newline at end of file
+    /**
+     * 惰性分页：按 key 顺序返回前缀下的全部对象；设置分隔符时返回目录前缀；提前停止后不再请求后续页
+     */
+    @Test
+    public void testListObjectsPaginator() {
+        String prefix = "dir2/";
+        int N = 20;
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < N; i++) keys.add(String.format("%stest-paginator-%02d", prefix, i));
+        for (int i = 0; i < 3; i++) keys.add(String.format("%ssubdir%d/test-paginator", prefix, i));
+        prepareTestFiles(keys);
+
+        ListObjectsPaginator paginator = ListObjectsPaginator.builder()
+                .client(object)
+                .bucket(getBucketName())
+                .prefix(prefix)
+                .pageSize(7)
+                .build();
+        List<String> sortedKeys = keys.stream().sorted().collect(Collectors.toList());
+        try (Stream<SufyObject> objects = paginator.objects()) {
+            assertEquals(sortedKeys,
+                    objects.map(SufyObject::key).collect(Collectors.toList()));
+        }
+
+        ListObjectsPaginator delimited = ListObjectsPaginator.builder()
+                .client(object)
+                .bucket(getBucketName())
+                .prefix(prefix)
+                .delimiter("/")
+                .pageSize(7)
+                .build();
+        try (Stream<CommonPrefix> commonPrefixes = delimited.commonPrefixes()) {
+            assertEquals(List.of(prefix + "subdir0/", prefix + "subdir1/", prefix + "subdir2/"),
+                    commonPrefixes.map(CommonPrefix::prefix).collect(Collectors.toList()));
+        }
+        try (Stream<SufyObject> objects = delimited.objects()) {
+            assertEquals(N, objects.count());
+        }
+
+        // 只取前 3 个对象：第一页与预取的第二页，不会继续请求
+        recorder.startRecording();
+        try (Stream<SufyObject> objects = paginator.objects()) {
+            assertEquals(sortedKeys.subList(0, 3), objects.limit(3).map(SufyObject::key).collect(Collectors.toList()));
+        }
+        assertTrue(recorder.stopAndGetRecords().size() <= 2);
+    }
+
+    /**
+     * 并行列举：按目录拆分与按 key 区间拆分的有序结果都与顺序列举一致，无序回调不重不漏
+     */
+    @Test
+    public void testParallelLister() {
+        String prefix = "dir3/";
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 10; i++) keys.add(prefix + "file-" + i);
+        for (int d = 0; d < 4; d++) {
+            for (int i = 0; i < 8; i++) keys.add(String.format("%sdir-%d/file-%d", prefix, d, i));
+            for (int i = 0; i < 3; i++) keys.add(String.format("%sdir-%d/sub/file-%d", prefix, d, i));
+        }
+        keys.add(prefix + "dir-0");
+        keys.add(prefix + "Zfile");
+        prepareTestFiles(keys);
+        List<String> sortedKeys = keys.stream().sorted().collect(Collectors.toList());
+
+        for (ParallelLister.Partitioning partitioning : ParallelLister.Partitioning.values()) {
+            try (ParallelLister lister = ParallelLister.builder()
+                    .client(object)
+                    .concurrency(4)
+                    .partitioning(partitioning)
+                    .partitions(8)
+                    .pageSize(5)
+                    .build()) {
+                assertEquals(sortedKeys, lister.list(getBucketName(), prefix, true).stream()
+                        .map(SufyObject::key)
+                        .collect(Collectors.toList()), partitioning.name());
+
+                Set<String> seen = ConcurrentHashMap.newKeySet();
+                long count = lister.forEach(getBucketName(), prefix, o -> assertTrue(seen.add(o.key())));
+                assertEquals(keys.size(), count);
+                assertEquals(new HashSet<>(keys), seen);
+            }
+        }
+
+        // 指定区间边界，边界本身作为 key 存在时只出现一次
+        try (ParallelLister lister = ParallelLister.builder()
+                .client(object)
+                .partitioning(ParallelLister.Partitioning.KEY_RANGE)
+                .boundaries(List.of(prefix + "dir-0", prefix + "dir-2/", prefix + "file-5"))
+                .pageSize(5)
+                .build()) {
+            assertEquals(sortedKeys, lister.list(getBucketName(), prefix, true).stream()
+                    .map(SufyObject::key)
+                    .collect(Collectors.toList()));
+        }
+    }
+}
@@ -1,19 +1,50 @@
 package com.sufy.sufysdktest.object.object;
 
+import com.sufy.sdk.auth.credentials.StaticCredentialsProvider;
+import com.sufy.sdk.auth.credentials.SufyBasicCredentials;
+import com.sufy.sdk.services.object.ObjectClient;
 import com.sufy.sdk.services.object.model.*;
 import com.sufy.sufysdktest.object.ObjectBaseTest;
+import com.sufy.transfer.MultipartUploadReaper;
+import com.sufy.transfer.MultipartUploader;
+import com.sufy.transfer.ParallelCopier;
+import com.sufy.transfer.UploadJournal;
+import com.sufy.util.ChecksumVerifier;
 import com.sufy.util.HttpClientRecorder;
+import com.sufy.util.SeededPayload;
 import org.apache.http.entity.ContentType;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.http.SdkHttpMethod;
 import software.amazon.awssdk.http.SdkHttpRequest;
 import software.amazon.awssdk.http.SdkHttpResponse;
+import software.amazon.awssdk.regions.Region;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.AbstractExecutorService;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -113,15 +144,14 @@ public class MultipartUploadTest extends ObjectBaseTest {
                         .build()
         );
         String uploadId = createMultipartUploadResponse.uploadId();
-        List<byte[]> bytesList = new ArrayList<>(parts);
+        // 分片内容按需生成，不在内存中保留，下载后按同一种子校验
+        SeededPayload payload = payload((long) parts * partSize);
 
         // 构造一个并发安全的Map<partNumber, eTag>，用于最终完成分片上传
         ConcurrentHashMap<Integer, String> partNumber2ETag = new ConcurrentHashMap<>(parts);
 
         prepareAsyncEnv(nThreads);
         for (int i = 1; i <= parts; i++) {
-            final byte[] bytes = randomBytes(partSize);
-            bytesList.add(bytes);
             final int partNumber = i;
             submitAsyncTask(() -> {
                 UploadPartResponse uploadPartResponse = object.uploadPart(
@@ -131,7 +161,7 @@ public class MultipartUploadTest extends ObjectBaseTest {
                                 .uploadId(uploadId)
                                 .partNumber(partNumber)
                                 .build(),
-                        RequestBody.fromBytes(bytes)
+                        payload.requestBody((long) (partNumber - 1) * partSize, partSize)
                 );
                 assertNotNull(uploadPartResponse.eTag());
                 partNumber2ETag.put(partNumber, uploadPartResponse.eTag());
@@ -191,17 +221,427 @@ public class MultipartUploadTest extends ObjectBaseTest {
             GetObjectResponse response = ris.response();
             assertEquals(eTag, response.eTag());
             assertEquals(contentType, response.contentType());
-            assertEquals((long) bytesList.size() * (long) partSize, response.contentLength());
+            assertEquals(payload.size(), response.contentLength());
+            assertEquals(-1, payload.firstMismatch(ris));
+        }
+    }
+
+    /**
+     * 使用 MultipartUploader 上传 12MB 的流，分片大小 5MB、并发度 2，应当得到 3 个分片
+     */
+    @Test
+    public void testMultipartUploader() throws IOException {
+        String key = "testMultipartUploaderFile";
+        int partSize = 5 * 1024 * 1024;
+        byte[] bytes = randomBytes(12 * 1024 * 1024);
+        assertEquals(partSize, MultipartUploader.partSizeFor(bytes.length, partSize));
+        assertEquals(1024 * 1024 * 1024, MultipartUploader.partSizeFor(10000L * 1024 * 1024 * 1024, partSize));
+        assertThrows(IllegalArgumentException.class, () -> MultipartUploader.builder().maxAttempts(0));
+
+        recorder.startRecording();
+        try (MultipartUploader uploader = MultipartUploader.builder()
+                .client(object)
+                .concurrency(2)
+                .partSize(partSize)
+                .build()) {
+            CompleteMultipartUploadResponse response = uploader.upload(
+                    getBucketName(), key, new ByteArrayInputStream(bytes), bytes.length);
+            assertEquals(key, response.key());
+            assertNotNull(response.eTag());
+        }
+        assertEquals(List.of("1", "2", "3"), uploadedPartNumbers(recorder.stopAndGetRecords()));
+
+        ResponseInputStream<GetObjectResponse> ris = object.getObject(GetObjectRequest.builder()
+                .bucket(getBucketName())
+                .key(key)
+                .build()
+        );
+        assertEquals(bytes.length, ris.response().contentLength());
+        assertArrayEquals(bytes, ris.readAllBytes());
+    }
+
+    /**
+     * 分片 2 第一次发送失败，重试后上传成功，其余分片不受影响
+     */
+    @Test
+    public void testMultipartUploaderRetriesPart() throws IOException {
+        String key = "testMultipartUploaderRetriesPart";
+        int partSize = 5 * 1024 * 1024;
+        SeededPayload payload = payload(2L * partSize + 1024);
+        AtomicInteger injected = new AtomicInteger();
+        ExecutionInterceptor failPartTwoOnce = new ExecutionInterceptor() {
+            @Override
+            public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+                if (context.request() instanceof UploadPartRequest
+                        && ((UploadPartRequest) context.request()).partNumber() == 2
+                        && injected.getAndIncrement() == 0) {
+                    throw SdkClientException.create("injected failure of part 2");
+                }
+            }
+        };
+
+        recorder.startRecording();
+        try (ObjectClient faultyObject = ObjectClient.builder()
+                .region(Region.of(config.getRegion()))
+                .endpointOverride(URI.create(config.getEndpoint()))
+                .forcePathStyle(config.isForcePathStyle())
+                .credentialsProvider(
+                        StaticCredentialsProvider.create(
+                                SufyBasicCredentials.create(config.getAccessKey(), config.getSecretKey())
+                        )
+                )
+                .httpClient(recorder)
+                .overrideConfiguration(ClientOverrideConfiguration.builder()
+                        .addExecutionInterceptor(failPartTwoOnce)
+                        .build())
+                .build();
+             MultipartUploader uploader = MultipartUploader.builder()
+                     .client(faultyObject)
+                     .concurrency(2)
+                     .partSize(partSize)
+                     .maxAttempts(2)
+                     .build()) {
+            try (InputStream in = payload.newInputStream()) {
+                uploader.upload(getBucketName(), key, in, payload.size());
+            }
+        }
+        assertEquals(2, injected.get());
+        assertEquals(List.of("1", "2", "3"), uploadedPartNumbers(recorder.stopAndGetRecords()));
+
+        ResponseInputStream<GetObjectResponse> ris = object.getObject(GetObjectRequest.builder()
+                .bucket(getBucketName())
+                .key(key)
+                .build()
+        );
+        assertEquals(payload.size(), ris.response().contentLength());
+        assertEquals(-1, payload.firstMismatch(ris));
+    }
+
+    // 录制结果中 UploadPart 请求的分片号，按数值排序
+    private static List<String> uploadedPartNumbers(List<HttpClientRecorder.HttpRecord> records) {
+        return records.stream()
+                .map(record -> record.request.httpRequest())
+                .filter(req -> req.method() == SdkHttpMethod.PUT && req.rawQueryParameters().containsKey("partNumber"))
+                .map(req -> req.rawQueryParameters().get("partNumber").get(0))
+                .sorted(Comparator.comparingInt(Integer::parseInt))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 从文件分片上传，分片直接从文件读取
+     */
+    @Test
+    public void testMultipartUploaderFromFile(@TempDir Path dir) throws IOException {
+        String key = "testMultipartUploaderFromFile";
+        byte[] bytes = randomBytes(11 * 1024 * 1024);
+        Path file = dir.resolve(key);
+        Files.write(file, bytes);
+
+        try (MultipartUploader uploader = MultipartUploader.builder()
+                .client(object)
+                .concurrency(3)
+                .partSize(5 * 1024 * 1024)
+                .build()) {
+            uploader.upload(getBucketName(), key, file);
+        }
+
+        ResponseInputStream<GetObjectResponse> ris = object.getObject(GetObjectRequest.builder()
+                .bucket(getBucketName())
+                .key(key)
+                .build()
+        );
+        assertArrayEquals(bytes, ris.readAllBytes());
+    }
 
-            // 拼接bytesList的所有byte
-            byte[] bytes1 = new byte[bytesList.size() * partSize];
-            for (int i = 0; i < bytesList.size(); i++) {
-                System.arraycopy(bytesList.get(i), 0, bytes1, i * partSize, partSize);
+    /**
+     * 续传：进度文件中记录了分片 1，分片 2 已上传但未记录。分片 ETag 是内容 MD5 时分片 2 可以对账找回，
+     * 续传只上传分片 3，否则重新上传分片 2 与 3；完成后删除进度文件。分片大小无效的进度文件直接报错
+     */
+    @Test
+    public void testResumableUpload(@TempDir Path dir) throws IOException, NoSuchAlgorithmException {
+        String key = "testResumableUpload";
+        int partSize = 5 * 1024 * 1024;
+        SeededPayload payload = payload(2L * partSize + 1024);
+        Path file = dir.resolve(key);
+        try (InputStream in = payload.newInputStream()) {
+            Files.copy(in, file);
+        }
+        Path journalPath = dir.resolve(key + ".journal");
+
+        // 模拟上传到一半时进程退出：分片 1 已记录，分片 2 上传完成但未来得及记录
+        String partTwoETag = null;
+        String uploadId = object.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(getBucketName())
+                .key(key)
+                .build()
+        ).uploadId();
+        try (UploadJournal journal = UploadJournal.create(journalPath, new UploadJournal.Header(getBucketName(), key,
+                uploadId, payload.size(), Files.getLastModifiedTime(file).toMillis(), partSize))) {
+            for (int i = 1; i <= 2; i++) {
+                UploadPartResponse response = object.uploadPart(UploadPartRequest.builder()
+                                .bucket(getBucketName())
+                                .key(key)
+                                .uploadId(uploadId)
+                                .partNumber(i)
+                                .build(),
+                        payload.requestBody((long) (i - 1) * partSize, partSize)
+                );
+                if (i == 1) {
+                    journal.append(new UploadJournal.PartRecord(i, response.eTag(), partSize, 0));
+                } else {
+                    partTwoETag = response.eTag();
+                }
             }
-            assertArrayEquals(bytes1, ris.readAllBytes());
+        }
+
+        recorder.startRecording();
+        try (MultipartUploader uploader = MultipartUploader.builder()
+                .client(object)
+                .concurrency(3)
+                .partSize(partSize)
+                .build()) {
+            CompleteMultipartUploadResponse response = uploader.uploadResumable(getBucketName(), key, file, journalPath);
+            assertEquals(key, response.key());
+        }
+        List<String> uploadedParts = recorder.stopAndGetRecords().stream()
+                .map(record -> record.request.httpRequest())
+                .filter(req -> req.method() == SdkHttpMethod.PUT && req.rawQueryParameters().containsKey("partNumber"))
+                .map(req -> req.rawQueryParameters().get("partNumber").get(0))
+                .collect(Collectors.toList());
+        // 未记录的分片只有 ETag 是内容 MD5 时才能对账找回，否则重新上传
+        String partTwoMd5 = HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(payload.bytes(partSize, partSize)));
+        boolean recoverable = partTwoETag.replace("\"", "").equalsIgnoreCase(partTwoMd5);
+        assertEquals(recoverable ? List.of("3") : List.of("2", "3"), uploadedParts);
+        assertFalse(Files.exists(journalPath));
+
+        ResponseInputStream<GetObjectResponse> ris = object.getObject(GetObjectRequest.builder()
+                .bucket(getBucketName())
+                .key(key)
+                .build()
+        );
+        assertEquals(payload.size(), ris.response().contentLength());
+        assertEquals(-1, payload.firstMismatch(ris));
+
+        Files.writeString(journalPath, "{\"bucket\":\"" + getBucketName() + "\",\"key\":\"" + key
+                + "\",\"uploadId\":\"" + uploadId + "\",\"partSize\":0}\n");
+        try (MultipartUploader uploader = MultipartUploader.builder().client(object).build()) {
+            assertThrows(SdkClientException.class, () -> uploader.uploadResumable(getBucketName(), key, file, journalPath));
         }
     }
 
+    /**
+     * 清理遗留的分片上传：未过期的不动，过期的全部取消并统计回收的字节数，前缀之外的不受影响
+     */
+    @Test
+    public void testMultipartUploadReaper() {
+        String prefix = "testMultipartUploadReaper/";
+        int partSize = 5 * 1024 * 1024;
+        int uploads = 5;
+        SeededPayload payload = payload(partSize);
+        long expectedBytes = 0;
+        for (int i = 0; i < uploads; i++) {
+            String key = prefix + i;
+            String uploadId = object.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                    .bucket(getBucketName())
+                    .key(key)
+                    .build()
+            ).uploadId();
+            // 第 i 个上传有 i 个分片
+            for (int n = 1; n <= i; n++) {
+                object.uploadPart(UploadPartRequest.builder()
+                                .bucket(getBucketName())
+                                .key(key)
+                                .uploadId(uploadId)
+                                .partNumber(n)
+                                .build(),
+                        payload.requestBody()
+                );
+                expectedBytes += partSize;
+            }
+        }
+        String keepUploadId = object.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(getBucketName())
+                .key("testMultipartUploadReaperKeep")
+                .build()
+        ).uploadId();
+
+        try (MultipartUploadReaper reaper = MultipartUploadReaper.builder()
+                .client(object)
+                .olderThan(Duration.ofHours(1))
+                .build()) {
+            MultipartUploadReaper.Result result = reaper.reap(getBucketName(), prefix);
+            assertEquals(uploads, result.scanned);
+            assertEquals(0, result.expired);
+        }
+        // 本地时钟拨快一分钟，服务端时钟略快时刚发起的上传也算过期
+        Clock ahead = Clock.offset(Clock.systemUTC(), Duration.ofMinutes(1));
+        // dryRun 只统计可回收的量，不取消也不计入 aborted
+        try (MultipartUploadReaper reaper = MultipartUploadReaper.builder()
+                .client(object)
+                .olderThan(Duration.ZERO)
+                .clock(ahead)
+                .dryRun(true)
+                .build()) {
+            MultipartUploadReaper.Result result = reaper.reap(getBucketName(), prefix);
+            assertEquals(uploads, result.expired);
+            assertEquals(0, result.aborted);
+            assertEquals(expectedBytes, result.bytesReclaimed);
+        }
+        try (MultipartUploadReaper reaper = MultipartUploadReaper.builder()
+                .client(object)
+                .concurrency(2)
+                .olderThan(Duration.ZERO)
+                .clock(ahead)
+                .abortsPerSecond(100)
+                .build()) {
+            MultipartUploadReaper.Result result = reaper.reap(getBucketName(), prefix);
+            assertEquals(uploads, result.expired);
+            assertEquals(uploads, result.aborted);
+            assertTrue(result.failed.isEmpty());
+            assertEquals((long) uploads * (uploads - 1) / 2, result.parts);
+            assertEquals(expectedBytes, result.bytesReclaimed);
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> MultipartUploadReaper.builder().maxAttempts(0));
+
+        List<MultipartUpload> remaining = object.listMultipartUploads(ListMultipartUploadsRequest.builder()
+                .bucket(getBucketName())
+                .prefix("testMultipartUploadReaper")
+                .build()
+        ).uploads();
+        assertEquals(List.of(keepUploadId), remaining.stream().map(MultipartUpload::uploadId).collect(Collectors.toList()));
+        object.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                .bucket(getBucketName())
+                .key("testMultipartUploadReaperKeep")
+                .uploadId(keepUploadId)
+                .build()
+        );
+    }
+
+    /**
+     * 小于阈值时直接 copyObject，超过阈值时并发分片拷贝，最后一个分片为短分片
+     */
+    @Test
+    public void testParallelCopier() throws IOException {
+        String srcKey = "testParallelCopierSrc";
+        int partSize = 5 * 1024 * 1024;
+        byte[] bytes = randomBytes(2 * partSize + 1024);
+        object.putObject(PutObjectRequest.builder()
+                        .bucket(getBucketName())
+                        .key(srcKey)
+                        .metadata(Map.of("test-key", "test-value"))
+                        .build(),
+                RequestBody.fromBytes(bytes)
+        );
+
+        try (ParallelCopier copier = ParallelCopier.builder()
+                .client(object)
+                .concurrency(3)
+                .partSize(partSize)
+                .multipartThreshold(partSize)
+                .build()) {
+            ParallelCopier.CopyResult result = copier.copy(getBucketName(), srcKey, getBucketName(), "testParallelCopierDest");
+            assertTrue(result.multipart);
+            assertEquals(3, result.parts);
+            assertEquals(bytes.length, result.size);
+            assertNotNull(result.eTag);
+        }
+        ResponseInputStream<GetObjectResponse> ris = object.getObject(GetObjectRequest.builder()
+                .bucket(getBucketName())
+                .key("testParallelCopierDest")
+                .build()
+        );
+        assertEquals("test-value", ris.response().metadata().get("test-key"));
+        assertArrayEquals(bytes, ris.readAllBytes());
+
+        try (ParallelCopier copier = ParallelCopier.builder().client(object).build()) {
+            ParallelCopier.CopyResult result = copier.copy(getBucketName(), srcKey, getBucketName(), "testParallelCopierSmall");
+            assertFalse(result.multipart);
+            assertEquals(bytes.length, result.size);
+        }
+        assertThrows(IllegalArgumentException.class, () -> ParallelCopier.builder().maxAttempts(0));
+    }
+
+    /**
+     * 分片拷贝开始后源对象被覆盖：分片带着 headObject 得到的 ETag 拷贝，返回 412 后取消分片上传，不会生成目标对象
+     */
+    @Test
+    public void testParallelCopierSourceChanged() {
+        String srcKey = "testParallelCopierSourceChangedSrc";
+        String destKey = "testParallelCopierSourceChangedDest";
+        int partSize = 5 * 1024 * 1024;
+        SeededPayload payload = payload(2L * partSize + 1024);
+        object.putObject(PutObjectRequest.builder()
+                        .bucket(getBucketName())
+                        .key(srcKey)
+                        .build(),
+                payload.requestBody()
+        );
+
+        // 第一个分片任务开始前覆盖源对象，此时 createMultipartUpload 已完成
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        AtomicBoolean overwritten = new AtomicBoolean();
+        ExecutorService overwriting = new AbstractExecutorService() {
+            @Override
+            public void execute(Runnable command) {
+                if (overwritten.compareAndSet(false, true)) {
+                    prepareTestFile(srcKey, "overwritten");
+                }
+                pool.execute(command);
+            }
+
+            @Override
+            public void shutdown() {
+                pool.shutdown();
+            }
+
+            @Override
+            public List<Runnable> shutdownNow() {
+                return pool.shutdownNow();
+            }
+
+            @Override
+            public boolean isShutdown() {
+                return pool.isShutdown();
+            }
+
+            @Override
+            public boolean isTerminated() {
+                return pool.isTerminated();
+            }
+
+            @Override
+            public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+                return pool.awaitTermination(timeout, unit);
+            }
+        };
+        try (ParallelCopier copier = ParallelCopier.builder()
+                .client(object)
+                .concurrency(2)
+                .partSize(partSize)
+                .multipartThreshold(partSize)
+                .executor(overwriting)
+                .build()) {
+            ObjectException e = assertThrows(ObjectException.class,
+                    () -> copier.copy(getBucketName(), srcKey, getBucketName(), destKey));
+            assertEquals(412, e.statusCode());
+        } finally {
+            pool.shutdownNow();
+        }
+        assertTrue(overwritten.get());
+
+        assertTrue(object.listMultipartUploads(ListMultipartUploadsRequest.builder()
+                .bucket(getBucketName())
+                .prefix(destKey)
+                .build()
+        ).uploads().isEmpty());
+        assertThrows(NoSuchKeyException.class, () -> object.headObject(HeadObjectRequest.builder()
+                .bucket(getBucketName())
+                .key(destKey)
+                .build()
+        ));
+    }
+
     /**
      * 上传一个分片，然后拷贝2次分片
      */
@@ -302,12 +742,25 @@ public class MultipartUploadTest extends ObjectBaseTest {
             assertEquals(contentType, response.contentType());
             assertEquals((long) bytes.length * (long) parts, response.contentLength());
 
-            // 拼接bytesList的所有byte
-            byte[] bytes1 = new byte[bytes.length * parts];
-            for (int i = 0; i < parts; i++) {
-                System.arraycopy(bytes, 0, bytes1, i * partSize, partSize);
+            // 逐块与重复 parts 次的源内容比较，不拼接完整内容；ETag 可由内容推出时同时校验
+            ChecksumVerifier verifier = new ChecksumVerifier()
+                    .expectLength(response.contentLength());
+            if (ChecksumVerifier.canVerifyETag(response.eTag(), partSize)) {
+                verifier.expectETag(response.eTag(), partSize);
+            }
+            try (InputStream in = verifier.wrap(ris)) {
+                byte[] buffer = new byte[64 * 1024];
+                long position = 0;
+                int n;
+                while ((n = in.read(buffer)) >= 0) {
+                    for (int j = 0; j < n; j++, position++) {
+                        if (buffer[j] != bytes[(int) (position % bytes.length)]) {
+                            fail("content mismatch at " + position);
+                        }
+                    }
+                }
+                assertEquals((long) bytes.length * parts, position);
             }
-            assertArrayEquals(bytes1, ris.readAllBytes());
         }
     }
 
@@ -1,14 +1,23 @@
 package com.sufy.sufysdktest.object.object;
 
+import com.sufy.cache.MetadataCache;
 import com.sufy.sdk.services.object.model.*;
 import com.sufy.sufysdktest.object.ObjectBaseTest;
+import com.sufy.transfer.BulkDeleter;
+import com.sufy.transfer.DirectorySync;
 import com.sufy.util.HttpClientRecorder;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.http.SdkHttpMethod;
 import software.amazon.awssdk.http.SdkHttpRequest;
 import software.amazon.awssdk.http.SdkHttpResponse;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -79,6 +88,49 @@ public class ObjectManageTest extends ObjectBaseTest {
         });
     }
 
+    /**
+     * 拷贝源条件：If-Match 不一致或 If-None-Match 命中时返回 412，目标对象不会被写入
+     */
+    @Test
+    public void testCopyObjectPreconditions() {
+        String srcKey = "testCopyObjectPreconditionsSrc";
+        String destKey = "testCopyObjectPreconditionsDest";
+        String eTag = object.putObject(PutObjectRequest.builder()
+                        .bucket(getBucketName())
+                        .key(srcKey)
+                        .build(),
+                RequestBody.fromString("testCopyObjectPreconditions")
+        ).eTag();
+        CopyObjectRequest request = CopyObjectRequest.builder()
+                .sourceBucket(getBucketName())
+                .sourceKey(srcKey)
+                .destinationBucket(getBucketName())
+                .destinationKey(destKey)
+                .build();
+
+        ObjectException e = assertThrows(ObjectException.class, () -> object.copyObject(request.toBuilder()
+                .copySourceIfMatch("\"00000000000000000000000000000000\"")
+                .build()
+        ));
+        assertEquals(412, e.statusCode());
+        e = assertThrows(ObjectException.class, () -> object.copyObject(request.toBuilder()
+                .copySourceIfNoneMatch(eTag)
+                .build()
+        ));
+        assertEquals(412, e.statusCode());
+        assertThrows(NoSuchKeyException.class, () -> object.headObject(HeadObjectRequest.builder()
+                .bucket(getBucketName())
+                .key(destKey)
+                .build()
+        ));
+
+        CopyObjectResponse response = object.copyObject(request.toBuilder()
+                .copySourceIfMatch(eTag)
+                .build()
+        );
+        assertEquals(eTag, response.copyObjectResult().eTag());
+    }
+
     @Test
     public void testDeleteObject() {
         String key = "testDeleteObjectFileKey";
@@ -124,13 +176,209 @@ public class ObjectManageTest extends ObjectBaseTest {
 //        });
     }
 
+    /**
+     * 按前缀批量删除，key 数超过单批上限，前缀之外的文件不受影响
+     */
+    @Test
+    public void testBulkDeleteByPrefix() {
+        String prefix = "testBulkDelete/";
+        int count = BulkDeleter.MAX_BATCH_SIZE + 234;
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            keys.add(prefix + i);
+        }
+        prepareTestFiles(keys);
+        prepareTestFile("testBulkDeleteKeep", "keep");
+
+        try (BulkDeleter deleter = BulkDeleter.builder()
+                .client(object)
+                .concurrency(2)
+                .queueCapacity(1)
+                .build()) {
+            BulkDeleter.Result result = deleter.purge(getBucketName(), prefix);
+            assertEquals(count, result.listed);
+            assertEquals(count, result.deleted);
+            assertTrue(result.failed.isEmpty());
+            assertTrue(result.deletesPerSecond() > 0);
+        }
+        assertThrows(IllegalArgumentException.class, () -> BulkDeleter.builder().maxAttempts(0));
+
+        ListObjectsV2Response listObjectsV2Response = object.listObjectsV2(ListObjectsV2Request.builder()
+                .bucket(getBucketName())
+                .build()
+        );
+        assertEquals(
+                List.of("testBulkDeleteKeep"),
+                listObjectsV2Response.contents().stream().map(SufyObject::key).collect(Collectors.toList())
+        );
+    }
+
+    /**
+     * 目录同步：首次全部上传，再次同步不传输；修改、新增、删除本地文件后只传输变化的文件并删除多余的对象；
+     * 下载到空目录后按修改时间比较与对象一致
+     */
+    @Test
+    public void testDirectorySync(@TempDir Path dir) throws IOException {
+        String prefix = "testDirectorySync/";
+        Path source = dir.resolve("source");
+        Files.createDirectories(source.resolve("a/b"));
+        Files.writeString(source.resolve("root.txt"), "root");
+        Files.writeString(source.resolve("a/one.txt"), "one");
+        Files.writeString(source.resolve("a/b/two.txt"), "two");
+        byte[] large = randomBytes(6 * 1024 * 1024);
+        Files.write(source.resolve("a/large.bin"), large);
+
+        try (DirectorySync sync = DirectorySync.builder()
+                .client(object)
+                .concurrency(4)
+                .multipartThreshold(5 * 1024 * 1024)
+                .partSize(5 * 1024 * 1024)
+                .deleteExtras(true)
+                .build()) {
+            DirectorySync.Result result = sync.upload(source, getBucketName(), prefix);
+            assertEquals(4, result.localFiles);
+            assertEquals(0, result.remoteObjects);
+            assertEquals(4, result.transferred);
+            assertEquals(large.length + "root".length() + "one".length() + "two".length(), result.transferredBytes);
+            assertTrue(result.failed.isEmpty());
+
+            result = sync.upload(source, getBucketName(), prefix);
+            assertEquals(4, result.remoteObjects);
+            assertEquals(4, result.unchanged);
+            assertEquals(0, result.transferred);
+
+            Files.writeString(source.resolve("a/one.txt"), "one!");
+            Files.writeString(source.resolve("a/b/three.txt"), "three");
+            Files.delete(source.resolve("root.txt"));
+            result = sync.upload(source, getBucketName(), prefix);
+            assertEquals(2, result.transferred);
+            assertEquals(1, result.deleted);
+            assertTrue(result.failed.isEmpty());
+        }
+
+        ListObjectsV2Response listObjectsV2Response = object.listObjectsV2(ListObjectsV2Request.builder()
+                .bucket(getBucketName())
+                .prefix(prefix)
+                .build()
+        );
+        assertEquals(
+                List.of(prefix + "a/b/three.txt", prefix + "a/b/two.txt", prefix + "a/large.bin", prefix + "a/one.txt"),
+                listObjectsV2Response.contents().stream().map(SufyObject::key).collect(Collectors.toList())
+        );
+
+        // 大小与修改时间相同但内容不同，只有按内容比较才能发现
+        Path changed = source.resolve("a/b/two.txt");
+        FileTime modified = Files.getLastModifiedTime(changed);
+        Files.writeString(changed, "TWO");
+        Files.setLastModifiedTime(changed, modified);
+        try (DirectorySync sync = DirectorySync.builder()
+                .client(object)
+                .multipartThreshold(5 * 1024 * 1024)
+                .partSize(5 * 1024 * 1024)
+                .build()) {
+            assertEquals(0, sync.upload(source, getBucketName(), prefix).transferred);
+        }
+        try (DirectorySync sync = DirectorySync.builder()
+                .client(object)
+                .compareMode(DirectorySync.CompareMode.CHECKSUM)
+                .multipartThreshold(5 * 1024 * 1024)
+                .partSize(5 * 1024 * 1024)
+                .build()) {
+            DirectorySync.Result result = sync.upload(source, getBucketName(), prefix);
+            assertEquals(1, result.transferred);
+            assertEquals(3, result.unchanged);
+
+            Path target = dir.resolve("target");
+            result = sync.download(getBucketName(), prefix, target);
+            assertEquals(4, result.transferred);
+            assertTrue(result.failed.isEmpty());
+            assertEquals("TWO", Files.readString(target.resolve("a/b/two.txt")));
+            assertArrayEquals(large, Files.readAllBytes(target.resolve("a/large.bin")));
+            assertEquals(0, sync.download(getBucketName(), prefix, target).transferred);
+        }
+        // 按大小与修改时间比较：下载时把本地修改时间设为远端的 LastModified，再次下载或反向上传都不会重复传输
+        try (DirectorySync sync = DirectorySync.builder()
+                .client(object)
+                .multipartThreshold(5 * 1024 * 1024)
+                .partSize(5 * 1024 * 1024)
+                .build()) {
+            Path target = dir.resolve("target-mtime");
+            assertEquals(4, sync.download(getBucketName(), prefix, target).transferred);
+            assertEquals(0, sync.download(getBucketName(), prefix, target).transferred);
+            DirectorySync.Result result = sync.upload(target, getBucketName(), prefix);
+            assertEquals(0, result.transferred);
+            assertEquals(4, result.unchanged);
+        }
+        assertThrows(IllegalArgumentException.class, () -> DirectorySync.builder().maxAttempts(0));
+    }
+
+    /**
+     * 元数据缓存：命中时不发请求，超过验证间隔后带 If-None-Match 验证，经由缓存写入后失效
+     */
+    @Test
+    public void testMetadataCache() {
+        String key = "testMetadataCache";
+        prepareTestFile(key, "HelloWorld");
+        HeadObjectRequest request = HeadObjectRequest.builder()
+                .bucket(getBucketName())
+                .key(key)
+                .build();
+
+        MetadataCache cache = MetadataCache.builder()
+                .client(object)
+                .revalidateAfter(Duration.ofHours(1))
+                .build();
+        recorder.startRecording();
+        {
+            HeadObjectResponse first = cache.headObject(request);
+            HeadObjectResponse second = cache.headObject(request);
+            assertSame(first, second);
+            assertEquals("HelloWorld".length(), second.contentLength());
+
+            GetBucketLocationRequest locationRequest = GetBucketLocationRequest.builder()
+                    .bucket(getBucketName())
+                    .build();
+            assertEquals(config.getRegion(), cache.getBucketLocation(locationRequest).locationConstraintAsString());
+            assertEquals(config.getRegion(), cache.getBucketLocation(locationRequest).locationConstraintAsString());
+        }
+        assertEquals(2, recorder.stopAndGetRecords().size());
+        assertEquals(1, cache.stats().hits);
+        assertEquals(1, cache.stats().misses);
+
+        // 经由缓存写入后条目失效，下次读取得到新的元数据
+        cache.putObject(PutObjectRequest.builder()
+                        .bucket(getBucketName())
+                        .key(key)
+                        .build(),
+                RequestBody.fromString("HelloWorld!")
+        );
+        assertEquals("HelloWorld!".length(), cache.headObject(request).contentLength());
+
+        MetadataCache revalidating = MetadataCache.builder()
+                .client(object)
+                .revalidateAfter(Duration.ZERO)
+                .build();
+        HeadObjectResponse cached = revalidating.headObject(request);
+        recorder.startRecording();
+        {
+            assertSame(cached, revalidating.headObject(request));
+        }
+        List<HttpClientRecorder.HttpRecord> records = recorder.stopAndGetRecords();
+        assertEquals(1, records.size());
+        assertEquals(cached.eTag(), records.get(0).request.httpRequest().firstMatchingHeader("If-None-Match").orElseThrow());
+        assertEquals(304, records.get(0).response.httpResponse().statusCode());
+        assertEquals(1, revalidating.stats().notModified);
+
+        // 绕过缓存写入后，验证时得到新的元数据
+        prepareTestFile(key, "Changed");
+        assertEquals("Changed".length(), revalidating.headObject(request).contentLength());
+    }
+
     @Test
     public void testDeleteObjects() {
         List<String> keys = new ArrayList<>();
         for (int i = 0; i < 10; i++) keys.add("testDeleteObjectsFileKey" + i);
-        prepareAsyncEnv();
-        keys.forEach((key) -> submitAsyncTask(() -> prepareTestFile(key, key + "-content")));
-        awaitAllAsyncTasks();
+        prepareTestFiles(keys, key -> key + "-content");
 
         // 删除空文件
         DeleteObjectsResponse deleteObjectsResponse = object.deleteObjects(DeleteObjectsRequest.builder()
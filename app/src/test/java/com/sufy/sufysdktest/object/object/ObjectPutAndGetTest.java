@@ -1,18 +1,59 @@
 package com.sufy.sufysdktest.object.object;
 
+import com.sufy.cache.ContentCache;
+import com.sufy.sdk.auth.credentials.StaticCredentialsProvider;
+import com.sufy.sdk.auth.credentials.SufyBasicCredentials;
+import com.sufy.sdk.services.object.ObjectClient;
 import com.sufy.sdk.services.object.model.*;
+import com.sufy.signer.CachingSigner;
 import com.sufy.sufysdktest.object.ObjectBaseTest;
+import com.sufy.transfer.BatchUploader;
+import com.sufy.transfer.ListObjectsPaginator;
+import com.sufy.transfer.RangedDownloader;
+import com.sufy.util.BodyDigest;
+import com.sufy.util.ChecksumMismatchException;
+import com.sufy.util.ChecksumVerifier;
+import com.sufy.util.Crc64;
+import com.sufy.util.FileRequestBody;
 import com.sufy.util.HttpClientRecorder;
+import com.sufy.util.RequestMetrics;
+import com.sufy.util.SeededPayload;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.core.ResponseBytes;
 import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.client.config.SdkAdvancedClientOption;
 import software.amazon.awssdk.core.exception.SdkClientException;
 import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.SdkHttpFullRequest;
 import software.amazon.awssdk.http.SdkHttpMethod;
 import software.amazon.awssdk.http.SdkHttpRequest;
 import software.amazon.awssdk.http.SdkHttpResponse;
+import software.amazon.awssdk.regions.Region;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -152,6 +193,429 @@ public class ObjectPutAndGetTest extends ObjectBaseTest {
         }
     }
 
+    /**
+     * 摘要录制模式下，记录中只保留响应头与响应体摘要，摘要在读取响应体的过程中计算
+     */
+    @Test
+    public void testGetObjectWithDigestCapture() throws IOException {
+        String key = "testGetObjectWithDigestCapture";
+        byte[] content = randomBytes(64 * 1024);
+        object.putObject(PutObjectRequest.builder()
+                        .bucket(getBucketName())
+                        .key(key)
+                        .build(),
+                RequestBody.fromBytes(content)
+        );
+
+        recorder.startRecording(HttpClientRecorder.CaptureMode.DIGEST, 16);
+        {
+            ResponseInputStream<GetObjectResponse> ris = object.getObject(GetObjectRequest.builder()
+                    .bucket(getBucketName())
+                    .key(key)
+                    .build()
+            );
+            assertArrayEquals(content, ris.readAllBytes());
+        }
+        HttpClientRecorder.HttpRecord record = recorder.stopAndGetRecords().get(0);
+        assertTrue(record.response.responseBody().isEmpty());
+        checkPublicResponseHeader(record.response.httpResponse());
+
+        BodyDigest digest = record.bodyDigest;
+        assertNotNull(digest);
+        assertTrue(digest.isComplete());
+        assertEquals(content.length, digest.length());
+        assertArrayEquals(Arrays.copyOf(content, 16), digest.head());
+        CRC32C crc32c = new CRC32C();
+        crc32c.update(content);
+        assertEquals(crc32c.getValue(), digest.crc32c());
+    }
+
+    /**
+     * 带 Content-Length 的请求体不会被读到 EOF，发送耗时按读满声明长度记录
+     */
+    @Test
+    public void testRequestMetricsSendTime() {
+        RequestMetrics metrics = recorder.getMetrics();
+        assertNotNull(metrics);
+        RequestMetrics.OperationMetrics putObject = metrics.operation("PutObject");
+        long before = putObject.sendTime.count();
+        object.putObject(PutObjectRequest.builder()
+                        .bucket(getBucketName())
+                        .key("testRequestMetricsSendTime")
+                        .build(),
+                RequestBody.fromBytes(randomBytes(256 * 1024))
+        );
+        assertTrue(putObject.sendTime.count() > before);
+        assertTrue(putObject.sendTime.min() >= 0);
+    }
+
+    /**
+     * 以文件中的一段作为请求体上传
+     */
+    @Test
+    public void testPutObjectFromFileRange(@TempDir Path dir) throws IOException {
+        String key = "testPutObjectFromFileRange";
+        byte[] content = randomBytes(256 * 1024);
+        Path file = dir.resolve(key);
+        Files.write(file, content);
+
+        recorder.startRecording();
+        {
+            object.putObject(PutObjectRequest.builder()
+                            .bucket(getBucketName())
+                            .key(key)
+                            .build(),
+                    FileRequestBody.fromFile(file, 1000, 100 * 1024)
+            );
+        }
+        HttpClientRecorder.HttpRecord record = recorder.stopAndGetRecords().get(0);
+        assertEquals(String.valueOf(100 * 1024), record.request.httpRequest().firstMatchingHeader("Content-Length").orElseThrow());
+
+        ResponseInputStream<GetObjectResponse> ris = object.getObject(GetObjectRequest.builder()
+                .bucket(getBucketName())
+                .key(key)
+                .build()
+        );
+        assertArrayEquals(Arrays.copyOfRange(content, 1000, 1000 + 100 * 1024), ris.readAllBytes());
+    }
+
+    /**
+     * 分段并发下载，分段大小不整除对象大小，最后一段为短段
+     */
+    @Test
+    public void testRangedDownload(@TempDir Path dir) throws IOException {
+        String key = "testRangedDownload";
+        byte[] content = randomBytes(3 * 1024 * 1024 + 123);
+        PutObjectResponse putObjectResponse = object.putObject(PutObjectRequest.builder()
+                        .bucket(getBucketName())
+                        .key(key)
+                        .build(),
+                RequestBody.fromBytes(content)
+        );
+
+        assertThrows(IllegalArgumentException.class, () -> RangedDownloader.builder().maxAttempts(0));
+        Path target = dir.resolve(key);
+        try (RangedDownloader downloader = RangedDownloader.builder()
+                .client(object)
+                .concurrency(4)
+                .partSize(1024 * 1024)
+                .build()) {
+            HeadObjectResponse head = downloader.download(getBucketName(), key, target);
+            assertEquals(putObjectResponse.eTag(), head.eTag());
+            assertEquals(content.length, head.contentLength());
+        }
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertFalse(Files.exists(dir.resolve(key + ".download")));
+    }
+
+    /**
+     * 下载时按 ETag 与 CRC 单次读取校验，内容与期望不一致时在读到末尾时失败，超出期望长度时立即失败
+     */
+    @Test
+    public void testGetObjectWithChecksumVerification() throws IOException {
+        String key = "testGetObjectWithChecksumVerification";
+        SeededPayload payload = payload(3 * 1024 * 1024 + 7);
+        PutObjectResponse putObjectResponse = object.putObject(PutObjectRequest.builder()
+                        .bucket(getBucketName())
+                        .key(key)
+                        .build(),
+                payload.requestBody()
+        );
+        CRC32C crc32c = new CRC32C();
+        Crc64 crc64 = new Crc64();
+        try (InputStream in = payload.newInputStream()) {
+            byte[] buffer = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                crc32c.update(buffer, 0, n);
+                crc64.update(buffer, 0, n);
+            }
+        }
+
+        GetObjectRequest request = GetObjectRequest.builder()
+                .bucket(getBucketName())
+                .key(key)
+                .build();
+        {
+            ResponseInputStream<GetObjectResponse> ris = object.getObject(request);
+            ChecksumVerifier verifier = new ChecksumVerifier()
+                    .expectLength(ris.response().contentLength())
+                    .expectCrc32c(crc32c.getValue())
+                    .expectCrc64(crc64.getValue());
+            if (ChecksumVerifier.canVerifyETag(putObjectResponse.eTag(), 0)) {
+                verifier.expectETag(putObjectResponse.eTag());
+            }
+            try (InputStream in = verifier.wrap(ris)) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            assertEquals(payload.size(), verifier.length());
+        }
+        {
+            ResponseInputStream<GetObjectResponse> ris = object.getObject(request);
+            ChecksumVerifier verifier = new ChecksumVerifier().expectCrc64(crc64.getValue() ^ 1);
+            try (InputStream in = verifier.wrap(ris)) {
+                ChecksumMismatchException e = assertThrows(ChecksumMismatchException.class,
+                        () -> in.transferTo(OutputStream.nullOutputStream()));
+                assertEquals("crc64", e.getChecksum());
+            }
+        }
+        {
+            ResponseInputStream<GetObjectResponse> ris = object.getObject(request);
+            ChecksumVerifier verifier = new ChecksumVerifier().expectLength(1024);
+            try (InputStream in = verifier.wrap(ris)) {
+                ChecksumMismatchException e = assertThrows(ChecksumMismatchException.class,
+                        () -> in.transferTo(OutputStream.nullOutputStream()));
+                assertEquals("length", e.getChecksum());
+            }
+        }
+    }
+
+    /**
+     * 磁盘内容缓存：首次读取下载整个对象，之后的完整读取与范围读取不发请求；
+     * 超过验证间隔后带 If-None-Match 验证，对象被覆盖后返回新内容；超过容量时淘汰最久未用的对象
+     */
+    @Test
+    public void testContentCache(@TempDir Path dir) throws IOException {
+        String key = "testContentCache";
+        SeededPayload payload = payload(1024 * 1024 + 3);
+        object.putObject(PutObjectRequest.builder()
+                        .bucket(getBucketName())
+                        .key(key)
+                        .build(),
+                payload.requestBody()
+        );
+        GetObjectRequest request = GetObjectRequest.builder()
+                .bucket(getBucketName())
+                .key(key)
+                .build();
+
+        ContentCache cache = ContentCache.builder()
+                .client(object)
+                .directory(dir.resolve("cache"))
+                .maxBytes(3 * payload.size())
+                .revalidateAfter(Duration.ofHours(1))
+                .build();
+        try (ResponseInputStream<GetObjectResponse> ris = cache.getObject(request)) {
+            assertEquals(payload.size(), ris.response().contentLength());
+            assertEquals(-1, payload.firstMismatch(ris));
+        }
+        recorder.startRecording();
+        {
+            try (ResponseInputStream<GetObjectResponse> ris = cache.getObject(request)) {
+                assertEquals(-1, payload.firstMismatch(ris));
+            }
+            try (ResponseInputStream<GetObjectResponse> ris = cache.getObject(request.toBuilder().range("bytes=1000-1999").build())) {
+                assertEquals(1000, ris.response().contentLength());
+                assertEquals(String.format("bytes 1000-1999/%d", payload.size()), ris.response().contentRange());
+                assertEquals(-1, payload.firstMismatch(ris, 1000, 1000));
+            }
+            try (ResponseInputStream<GetObjectResponse> ris = cache.getObject(request.toBuilder().range("bytes=-10").build())) {
+                assertEquals(-1, payload.firstMismatch(ris, payload.size() - 10, 10));
+            }
+        }
+        assertTrue(recorder.stopAndGetRecords().isEmpty());
+        assertEquals(1, cache.stats().misses);
+        assertEquals(3, cache.stats().hits);
+        assertEquals(payload.size(), cache.stats().bytes);
+
+        ContentCache revalidating = ContentCache.builder()
+                .client(object)
+                .directory(dir.resolve("revalidating"))
+                .revalidateAfter(Duration.ZERO)
+                .build();
+        revalidating.getObject(request).close();
+        recorder.startRecording();
+        {
+            try (ResponseInputStream<GetObjectResponse> ris = revalidating.getObject(request)) {
+                assertEquals(-1, payload.firstMismatch(ris));
+            }
+        }
+        List<HttpClientRecorder.HttpRecord> records = recorder.stopAndGetRecords();
+        assertEquals(1, records.size());
+        assertEquals(304, records.get(0).response.httpResponse().statusCode());
+        assertEquals(1, revalidating.stats().notModified);
+
+        // 对象被覆盖后，验证时得到新内容
+        prepareTestFile(key, "HelloWorld");
+        try (ResponseInputStream<GetObjectResponse> ris = revalidating.getObject(request)) {
+            assertEquals("HelloWorld", new String(ris.readAllBytes()));
+        }
+
+        // 超过容量后淘汰最久未使用的对象
+        for (int i = 0; i < 3; i++) {
+            String otherKey = key + i;
+            object.putObject(PutObjectRequest.builder()
+                            .bucket(getBucketName())
+                            .key(otherKey)
+                            .build(),
+                    payload.requestBody()
+            );
+            cache.getObject(request.toBuilder().key(otherKey).build()).close();
+        }
+        assertTrue(cache.stats().evictions > 0);
+        assertTrue(cache.stats().bytes <= 3 * payload.size());
+    }
+
+    /**
+     * 批量上传大量小文件：对象从惰性流中取出，失败的对象记录在结果中
+     */
+    @Test
+    public void testBatchUpload() throws IOException {
+        int count = 2000;
+        try (BatchUploader uploader = BatchUploader.builder()
+                .client(object)
+                .concurrency(16)
+                .queueCapacity(8)
+                .build()) {
+            BatchUploader.Result result = uploader.upload(getBucketName(), IntStream.range(0, count)
+                    .mapToObj(i -> BatchUploader.Item.of("testBatchUpload/" + i, "content-" + i)));
+            assertEquals(count, result.submitted);
+            assertEquals(count, result.uploaded);
+            assertTrue(result.failed.isEmpty());
+            assertTrue(result.objectsPerSecond() > 0);
+
+            result = uploader.upload("testbatchuploadnosuchbucket", Stream.of(BatchUploader.Item.of("key", "content")));
+            assertEquals(0, result.uploaded);
+            assertEquals(Set.of("key"), result.failed.keySet());
+        }
+        assertThrows(IllegalArgumentException.class, () -> BatchUploader.builder().maxAttempts(0));
+
+        ResponseInputStream<GetObjectResponse> ris = object.getObject(GetObjectRequest.builder()
+                .bucket(getBucketName())
+                .key("testBatchUpload/1234")
+                .build()
+        );
+        assertEquals("content-1234", new String(ris.readAllBytes()));
+        assertEquals(count, ListObjectsPaginator.builder()
+                .client(object)
+                .bucket(getBucketName())
+                .prefix("testBatchUpload/")
+                .build()
+                .objects()
+                .count());
+    }
+
+    /**
+     * 通过异步客户端并发上传与下载大量小文件
+     */
+    @Test
+    public void testAsyncPutAndGetObjects() {
+        int count = 2000;
+        for (int i = 0; i < count; i++) {
+            String key = "testAsyncPutAndGetObjects" + i;
+            submitAsyncRequest(async -> async.putObject(PutObjectRequest.builder()
+                            .bucket(getBucketName())
+                            .key(key)
+                            .build(),
+                    AsyncRequestBody.fromString(key)
+            ));
+        }
+        awaitAllAsyncRequests();
+
+        List<CompletableFuture<ResponseBytes<GetObjectResponse>>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String key = "testAsyncPutAndGetObjects" + i;
+            futures.add(submitAsyncRequest(async -> async.getObject(GetObjectRequest.builder()
+                            .bucket(getBucketName())
+                            .key(key)
+                            .build(),
+                    AsyncResponseTransformer.toBytes()
+            )));
+        }
+        awaitAllAsyncRequests();
+        for (int i = 0; i < count; i++) {
+            assertEquals("testAsyncPutAndGetObjects" + i, futures.get(i).join().asUtf8String());
+        }
+    }
+
+    /**
+     * CachingSigner：对 SDK 已签名的请求按相同时间重新签名，Authorization 应完全一致；
+     * 换用 CachingSigner 的客户端可以正常读写
+     */
+    @Test
+    public void testCachingSigner() throws IOException {
+        String key = "testCachingSigner";
+        prepareTestFile(key, "HelloWorld");
+        recorder.startRecording();
+        {
+            object.headObject(HeadObjectRequest.builder()
+                    .bucket(getBucketName())
+                    .key(key)
+                    .build()
+            );
+        }
+        SdkHttpRequest signed = recorder.stopAndGetRecords().get(0).request.httpRequest();
+        String authorization = signed.firstMatchingHeader("Authorization").orElseThrow();
+        String date = signed.firstMatchingHeader(CachingSigner.DATE_HEADER).orElseThrow();
+        // Credential=ak/日期/region/服务名/结束符
+        String[] scope = authorization.split("Credential=")[1].split(",")[0].split("/");
+        // 共享客户端与 benchmark 按默认服务名构造签名器，SDK 实际使用的服务名必须与之相同
+        assertEquals(CachingSigner.DEFAULT_SERVICE_NAME, scope[3]);
+        CachingSigner signer = CachingSigner.builder()
+                .accessKeyId(config.getAccessKey())
+                .secretAccessKey(config.getSecretKey())
+                .region(config.getRegion())
+                .serviceName(scope[3])
+                .clock(Clock.fixed(
+                        LocalDateTime.parse(date, DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'")).toInstant(ZoneOffset.UTC),
+                        ZoneOffset.UTC
+                ))
+                .build();
+        SdkHttpFullRequest resigned = signer.sign(SdkHttpFullRequest.builder()
+                .method(signed.method())
+                .protocol(signed.protocol())
+                .host(signed.host())
+                .port(signed.port())
+                .encodedPath(signed.encodedPath())
+                .rawQueryParameters(signed.rawQueryParameters())
+                .headers(signed.headers())
+                .build()
+        );
+        assertEquals(authorization, resigned.firstMatchingHeader("Authorization").orElseThrow());
+        // 第二次签名走缓存的密钥与缓冲区，结果不变
+        assertEquals(authorization, signer.sign(resigned).firstMatchingHeader("Authorization").orElseThrow());
+
+        try (ObjectClient cachingObject = ObjectClient.builder()
+                .region(Region.of(config.getRegion()))
+                .endpointOverride(URI.create(config.getEndpoint()))
+                .forcePathStyle(config.isForcePathStyle())
+                .credentialsProvider(
+                        StaticCredentialsProvider.create(
+                                SufyBasicCredentials.create(config.getAccessKey(), config.getSecretKey())
+                        )
+                )
+                .httpClient(recorder)
+                .overrideConfiguration(ClientOverrideConfiguration.builder()
+                        .putAdvancedOption(SdkAdvancedClientOption.SIGNER, CachingSigner.builder()
+                                .accessKeyId(config.getAccessKey())
+                                .secretAccessKey(config.getSecretKey())
+                                .region(config.getRegion())
+                                .serviceName(scope[3])
+                                .build())
+                        .build())
+                .build()) {
+            recorder.startRecording();
+            {
+                cachingObject.putObject(PutObjectRequest.builder()
+                                .bucket(getBucketName())
+                                .key(key)
+                                .build(),
+                        RequestBody.fromString("Signed by CachingSigner")
+                );
+                ResponseInputStream<GetObjectResponse> ris = cachingObject.getObject(GetObjectRequest.builder()
+                        .bucket(getBucketName())
+                        .key(key)
+                        .build()
+                );
+                assertEquals("Signed by CachingSigner", new String(ris.readAllBytes()));
+            }
+            for (HttpClientRecorder.HttpRecord record : recorder.stopAndGetRecords()) {
+                checkPublicRequestHeader(record.request.httpRequest());
+                assertEquals(200, record.response.httpResponse().statusCode());
+            }
+        }
+    }
+
     @Test
     public void testHeadObject() {
         String key = "testKey1";
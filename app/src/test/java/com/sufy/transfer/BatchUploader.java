@@ -0,0 +1,252 @@
+package com.sufy.transfer;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.sufy.sdk.services.object.ObjectClient;
+import com.sufy.sdk.services.object.model.PutObjectRequest;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.sync.RequestBody;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * 大量小对象的批量上传：调用线程依次取出 (key, body) 放入有界队列，concurrency 个上传线程各自循环取出并 putObject。
+ * <p>
+ * 小对象的耗时几乎全是单次请求的固定开销，吞吐取决于同时在途的请求数。上传线程常驻且一直有活可干，
+ * 每个线程都会复用连接池里的一个长连接，不会为每个对象重新提交任务或建连；
+ * 因此 http client 的 maxConnections 应不小于 concurrency，必要时预先建立连接。
+ * 同一 bucket 的请求从一个模板派生，只替换 key。
+ * <p>
+ * 队列满时调用线程阻塞，对象再多内存占用也不变；单个对象重试后仍失败时记录在结果中而不抛异常。
+ */
+public class BatchUploader implements AutoCloseable {
+    // 队列结束标记，每个上传线程取到一个后退出
+    private static final Item END = new Item(null, null);
+
+    private final ObjectClient client;
+    private final int concurrency;
+    private final int queueCapacity;
+    private final int maxAttempts;
+    private final RateLimiter rateLimiter;
+    private final TransferExecutor executor;
+
+    public static final class Item {
+        public final String key;
+        public final RequestBody body;
+
+        private Item(String key, RequestBody body) {
+            this.key = key;
+            this.body = body;
+        }
+
+        public static Item of(String key, RequestBody body) {
+            return new Item(key, body);
+        }
+
+        public static Item of(String key, String content) {
+            return new Item(key, RequestBody.fromString(content));
+        }
+
+        public static Item of(String key, byte[] content) {
+            return new Item(key, RequestBody.fromBytes(content));
+        }
+    }
+
+    public static class Result {
+        public final long submitted;
+        public final long uploaded;
+        public final long bytes;
+        // 重试后仍上传失败的 key -> 错误信息
+        public final Map<String, String> failed;
+        public final long elapsedNanos;
+
+        Result(long submitted, long uploaded, long bytes, Map<String, String> failed, long elapsedNanos) {
+            this.submitted = submitted;
+            this.uploaded = uploaded;
+            this.bytes = bytes;
+            this.failed = Collections.unmodifiableMap(new TreeMap<>(failed));
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public double objectsPerSecond() {
+            return elapsedNanos == 0 ? 0 : uploaded * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("submitted=%d, uploaded=%d, failed=%d, bytes=%d, elapsed=%.3fs, %.1f objects/s",
+                    submitted, uploaded, failed.size(), bytes, elapsedNanos / 1_000_000_000.0, objectsPerSecond());
+        }
+    }
+
+    private BatchUploader(Builder builder) {
+        if (builder.client == null) {
+            throw new IllegalArgumentException("client must not be null");
+        }
+        this.client = builder.client;
+        this.concurrency = builder.concurrency;
+        this.queueCapacity = builder.queueCapacity > 0 ? builder.queueCapacity : 4 * builder.concurrency;
+        this.maxAttempts = builder.maxAttempts;
+        this.rateLimiter = builder.putsPerSecond > 0 ? RateLimiter.create(builder.putsPerSecond) : null;
+        this.executor = TransferExecutor.of(builder.executor, concurrency);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private ObjectClient client;
+        private int concurrency = 32;
+        private int queueCapacity;
+        private int maxAttempts = 3;
+        private double putsPerSecond;
+        private ExecutorService executor;
+
+        public Builder client(ObjectClient client) {
+            this.client = client;
+            return this;
+        }
+
+        /**
+         * 同时在途的 putObject 请求数，即占用的长连接数
+         */
+        public Builder concurrency(int concurrency) {
+            if (concurrency <= 0) {
+                throw new IllegalArgumentException("concurrency must be positive: " + concurrency);
+            }
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        /**
+         * 等待上传的对象数上限，默认为 concurrency 的 4 倍
+         */
+        public Builder queueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        public Builder maxAttempts(int maxAttempts) {
+            this.maxAttempts = TransferRetry.checkMaxAttempts(maxAttempts);
+            return this;
+        }
+
+        /**
+         * 每秒最多开始的上传数，不大于 0 时不限速
+         */
+        public Builder putsPerSecond(double putsPerSecond) {
+            this.putsPerSecond = putsPerSecond;
+            return this;
+        }
+
+        /**
+         * 使用调用方提供的线程池，不设置时按 concurrency 新建；调用方的线程池不会随 close 关闭，每次调用占用其中 concurrency 个线程直到结束
+         */
+        public Builder executor(ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public BatchUploader build() {
+            return new BatchUploader(this);
+        }
+    }
+
+    /**
+     * 上传 key -> 文本内容
+     */
+    public Result upload(String bucket, Map<String, String> objects) {
+        return upload(bucket, objects.entrySet().stream().map(e -> Item.of(e.getKey(), e.getValue())));
+    }
+
+    /**
+     * 按流的顺序取出对象并上传，流是惰性的时候只会取出队列容量加上在途数量的对象
+     */
+    public Result upload(String bucket, Stream<Item> items) {
+        long start = System.nanoTime();
+        BlockingQueue<Item> queue = new ArrayBlockingQueue<>(queueCapacity);
+        LongAdder uploaded = new LongAdder();
+        LongAdder bytes = new LongAdder();
+        Map<String, String> failed = new ConcurrentHashMap<>();
+        PutObjectRequest template = PutObjectRequest.builder()
+                .bucket(bucket)
+                .build();
+
+        List<Future<?>> workers = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            workers.add(executor.submit(() -> {
+                drain(template, queue, uploaded, bytes, failed);
+                return null;
+            }));
+        }
+        long submitted = 0;
+        try {
+            try {
+                Iterator<Item> it = items.iterator();
+                while (it.hasNext()) {
+                    queue.put(it.next());
+                    submitted++;
+                }
+            } finally {
+                for (int i = 0; i < concurrency; i++) {
+                    queue.put(END);
+                }
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            workers.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw SdkClientException.create("Batch upload interrupted: " + bucket, e);
+        } catch (ExecutionException e) {
+            throw SdkClientException.create("Batch upload failed: " + bucket, e.getCause());
+        }
+        return new Result(submitted, uploaded.sum(), bytes.sum(), failed, System.nanoTime() - start);
+    }
+
+    private void drain(PutObjectRequest template, BlockingQueue<Item> queue, LongAdder uploaded, LongAdder bytes,
+                       Map<String, String> failed) throws InterruptedException {
+        while (true) {
+            Item item = queue.take();
+            if (item == END) {
+                return;
+            }
+            if (rateLimiter != null) {
+                rateLimiter.acquire();
+            }
+            PutObjectRequest request = template.toBuilder()
+                    .key(item.key)
+                    .build();
+            try {
+                TransferRetry.call(maxAttempts, () -> client.putObject(request, item.body));
+                uploaded.increment();
+                bytes.add(item.body.optionalContentLength().orElse(0L));
+            } catch (RuntimeException e) {
+                failed.put(item.key, String.valueOf(e.getMessage()));
+            }
+        }
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
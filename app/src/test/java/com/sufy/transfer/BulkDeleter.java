@@ -0,0 +1,311 @@
+package com.sufy.transfer;
+
+import com.sufy.sdk.services.object.ObjectClient;
+import com.sufy.sdk.services.object.model.*;
+import software.amazon.awssdk.core.exception.SdkClientException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * 批量清空前缀或整个 bucket：调用线程持续 listObjectsV2，把 key 攒满 1000 个一批放入有界队列，
+ * 多个删除线程同时从队列取批次 deleteObjects，列举与删除互相重叠。
+ * <p>
+ * 队列满时列举线程阻塞，内存占用不超过 (queueCapacity + concurrency) 个批次；
+ * 响应中 errors 里的 key 会单独重试，重试仍失败的 key 记录在结果中而不抛异常。
+ * 也可以通过 {@link #delete(String, Collection)} 删除一组已知的 key，同样分批并发。
+ */
+public class BulkDeleter implements AutoCloseable {
+    public static final int MAX_BATCH_SIZE = 1000;
+    // 队列结束标记，每个删除线程取到一个后退出
+    private static final List<ObjectIdentifier> END = Collections.emptyList();
+
+    private final ObjectClient client;
+    private final int concurrency;
+    private final int queueCapacity;
+    private final int maxAttempts;
+    private final TransferExecutor executor;
+
+    public static class Result {
+        public final long listed;
+        public final long deleted;
+        // 重试后仍删除失败的 key -> 错误码
+        public final Map<String, String> failed;
+        public final long elapsedNanos;
+
+        Result(long listed, long deleted, Map<String, String> failed, long elapsedNanos) {
+            this.listed = listed;
+            this.deleted = deleted;
+            this.failed = Collections.unmodifiableMap(new TreeMap<>(failed));
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public double deletesPerSecond() {
+            return elapsedNanos == 0 ? 0 : deleted * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("listed=%d, deleted=%d, failed=%d, elapsed=%.3fs, %.1f objects/s",
+                    listed, deleted, failed.size(), elapsedNanos / 1_000_000_000.0, deletesPerSecond());
+        }
+    }
+
+    private BulkDeleter(Builder builder) {
+        if (builder.client == null) {
+            throw new IllegalArgumentException("client must not be null");
+        }
+        this.client = builder.client;
+        this.concurrency = builder.concurrency;
+        this.queueCapacity = builder.queueCapacity > 0 ? builder.queueCapacity : 2 * builder.concurrency;
+        this.maxAttempts = builder.maxAttempts;
+        this.executor = TransferExecutor.of(builder.executor, concurrency);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private ObjectClient client;
+        private int concurrency = 8;
+        private int queueCapacity;
+        private int maxAttempts = 3;
+        private ExecutorService executor;
+
+        public Builder client(ObjectClient client) {
+            this.client = client;
+            return this;
+        }
+
+        /**
+         * 同时进行的 deleteObjects 请求数
+         */
+        public Builder concurrency(int concurrency) {
+            if (concurrency <= 0) {
+                throw new IllegalArgumentException("concurrency must be positive: " + concurrency);
+            }
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        /**
+         * 等待删除的批次数上限，默认为 concurrency 的 2 倍
+         */
+        public Builder queueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * 单个请求与单个 key 的最大尝试次数（含首次）
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            this.maxAttempts = TransferRetry.checkMaxAttempts(maxAttempts);
+            return this;
+        }
+
+        /**
+         * 使用调用方提供的线程池，不设置时按 concurrency 新建；调用方的线程池不会随 close 关闭，每次调用占用其中 concurrency 个线程直到结束
+         */
+        public Builder executor(ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public BulkDeleter build() {
+            return new BulkDeleter(this);
+        }
+    }
+
+    public Result purgeBucket(String bucket) {
+        return purge(bucket, null);
+    }
+
+    /**
+     * 删除 bucket 中以 prefix 开头的所有对象，prefix 为 null 时清空整个 bucket
+     */
+    public Result purge(String bucket, String prefix) {
+        return run(bucket, (queue, failure) -> list(bucket, prefix, queue, failure));
+    }
+
+    /**
+     * 删除指定的一组 key，按 1000 个一批并发 deleteObjects
+     */
+    public Result delete(String bucket, Collection<String> keys) {
+        return run(bucket, (queue, failure) -> {
+            List<ObjectIdentifier> batch = new ArrayList<>(MAX_BATCH_SIZE);
+            for (String key : keys) {
+                if (failure.get() != null) {
+                    break;
+                }
+                batch.add(ObjectIdentifier.builder().key(key).build());
+                if (batch.size() == MAX_BATCH_SIZE) {
+                    queue.put(batch);
+                    batch = new ArrayList<>(MAX_BATCH_SIZE);
+                }
+            }
+            if (!batch.isEmpty()) {
+                queue.put(batch);
+            }
+            return keys.size();
+        });
+    }
+
+    // 在调用线程上产生待删除的批次，返回 key 的总数
+    private interface BatchProducer {
+        long produce(BlockingQueue<List<ObjectIdentifier>> queue, AtomicReference<RuntimeException> failure)
+                throws InterruptedException;
+    }
+
+    private Result run(String bucket, BatchProducer producer) {
+        long start = System.nanoTime();
+        BlockingQueue<List<ObjectIdentifier>> queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicLong deleted = new AtomicLong();
+        Map<String, String> failed = new ConcurrentHashMap<>();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        List<Future<?>> workers = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            workers.add(executor.submit(() -> {
+                drain(bucket, queue, deleted, failed, failure);
+                return null;
+            }));
+        }
+        long listed = 0;
+        try {
+            try {
+                listed = producer.produce(queue, failure);
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                for (int i = 0; i < concurrency; i++) {
+                    queue.put(END);
+                }
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            workers.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw SdkClientException.create("Bulk delete interrupted: " + bucket, e);
+        } catch (ExecutionException e) {
+            failure.compareAndSet(null, SdkClientException.create("Bulk delete failed: " + bucket, e.getCause()));
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return new Result(listed, deleted.get(), failed, System.nanoTime() - start);
+    }
+
+    // 列举结果不按页提交，而是跨页攒满 1000 个 key 再提交，最后一批可能不满；
+    // 处理当前页时下一页已在预取
+    private long list(String bucket, String prefix, BlockingQueue<List<ObjectIdentifier>> queue,
+                      AtomicReference<RuntimeException> failure) throws InterruptedException {
+        long listed = 0;
+        List<ObjectIdentifier> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        try (Stream<ListObjectsV2Response> pages = ListObjectsPaginator.builder()
+                .client(client)
+                .bucket(bucket)
+                .prefix(prefix)
+                .pageSize(MAX_BATCH_SIZE)
+                .maxAttempts(maxAttempts)
+                .build()
+                .pages()) {
+            Iterator<ListObjectsV2Response> it = pages.iterator();
+            while (it.hasNext()) {
+                if (failure.get() != null) {
+                    return listed;
+                }
+                for (SufyObject o : it.next().contents()) {
+                    batch.add(ObjectIdentifier.builder().key(o.key()).build());
+                    listed++;
+                    if (batch.size() == MAX_BATCH_SIZE) {
+                        queue.put(batch);
+                        batch = new ArrayList<>(MAX_BATCH_SIZE);
+                    }
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            queue.put(batch);
+        }
+        return listed;
+    }
+
+    private void drain(String bucket, BlockingQueue<List<ObjectIdentifier>> queue, AtomicLong deleted,
+                       Map<String, String> failed, AtomicReference<RuntimeException> failure) throws InterruptedException {
+        while (true) {
+            List<ObjectIdentifier> batch = queue.take();
+            if (batch == END) {
+                return;
+            }
+            // 出错后继续取走批次但不再删除，避免列举线程阻塞在满队列上
+            if (failure.get() != null) {
+                continue;
+            }
+            try {
+                deleteBatch(bucket, batch, deleted, failed);
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+            }
+        }
+    }
+
+    private void deleteBatch(String bucket, List<ObjectIdentifier> batch, AtomicLong deleted, Map<String, String> failed) {
+        List<ObjectIdentifier> pending = batch;
+        for (int attempt = 1; ; attempt++) {
+            final List<ObjectIdentifier> objects = pending;
+            // quiet 模式下响应只包含失败的 key
+            DeleteObjectsResponse response = TransferRetry.call(maxAttempts, () -> client.deleteObjects(DeleteObjectsRequest.builder()
+                    .bucket(bucket)
+                    .delete(Delete.builder()
+                            .objects(objects)
+                            .quiet(true)
+                            .build()
+                    )
+                    .build()
+            ));
+            if (response.errors().isEmpty()) {
+                deleted.addAndGet(objects.size());
+                return;
+            }
+            deleted.addAndGet(objects.size() - response.errors().size());
+            if (attempt >= maxAttempts) {
+                for (var error : response.errors()) {
+                    failed.put(error.key(), String.valueOf(error.code()));
+                }
+                return;
+            }
+            pending = new ArrayList<>(response.errors().size());
+            for (var error : response.errors()) {
+                pending.add(ObjectIdentifier.builder().key(error.key()).build());
+            }
+            TransferRetry.backoff(attempt);
+        }
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
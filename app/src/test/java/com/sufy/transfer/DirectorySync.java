@@ -0,0 +1,489 @@
+package com.sufy.transfer;
+
+import com.sufy.sdk.services.object.ObjectClient;
+import com.sufy.sdk.services.object.model.GetObjectRequest;
+import com.sufy.sdk.services.object.model.GetObjectResponse;
+import com.sufy.sdk.services.object.model.PutObjectRequest;
+import com.sufy.sdk.services.object.model.SufyObject;
+import com.sufy.util.ChecksumMismatchException;
+import com.sufy.util.ChecksumVerifier;
+import com.sufy.util.FileRequestBody;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.SdkClientException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * 本地目录与 bucket 前缀之间的单向同步。
+ * <p>
+ * 本地目录的遍历与前缀的列举同时进行：遍历按子目录在 ForkJoinPool 上并行，列举使用 {@link ParallelLister}。
+ * 两边按相对路径对齐后只传输有差异的文件，大文件上传使用 {@link MultipartUploader}，
+ * 大文件下载使用 {@link RangedDownloader}；可选删除目标端多出的文件，上传方向通过 {@link BulkDeleter} 分批删除。
+ * 遍历与列举仍与文件总数成正比，但只有元数据开销且并行进行，传输量只与变化的文件数有关。
+ * <p>
+ * 比较方式：
+ * <ul>
+ *     <li>{@link CompareMode#SIZE_MTIME}：大小不同，或源端修改时间晚于目标端时传输。
+ *     上传后对象的修改时间为上传时间，下载后本地文件的修改时间设为对象的修改时间，再次同步时视为一致。</li>
+ *     <li>{@link CompareMode#CHECKSUM}：大小相同时计算本地文件的 MD5（分片上传的对象按分片 ETag 规则）
+ *     与 ETag 比较，ETag 不是由内容计算的格式时退回按修改时间比较。</li>
+ * </ul>
+ * 单个文件传输失败记录在结果中而不抛异常；符号链接与以 "/" 结尾的目录占位对象会被忽略。
+ */
+public class DirectorySync implements AutoCloseable {
+    private static final Pattern CONTENT_ETAG = Pattern.compile("\"?[0-9a-fA-F]{32}(-\\d+)?\"?");
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    public enum CompareMode {
+        SIZE_MTIME,
+        CHECKSUM
+    }
+
+    private final ObjectClient client;
+    private final int concurrency;
+    private final CompareMode compareMode;
+    private final boolean deleteExtras;
+    private final long multipartThreshold;
+    private final long partSize;
+    private final int maxAttempts;
+    private final ForkJoinPool scanPool;
+    private final TransferExecutor executor;
+    private final MultipartUploader uploader;
+    private final RangedDownloader downloader;
+
+    public static class Result {
+        public final long localFiles;
+        public final long remoteObjects;
+        public final long unchanged;
+        public final long transferred;
+        public final long transferredBytes;
+        public final long deleted;
+        // 失败的相对路径 -> 错误信息
+        public final Map<String, String> failed;
+        public final long elapsedNanos;
+
+        Result(long localFiles, long remoteObjects, long unchanged, long transferred, long transferredBytes,
+               long deleted, Map<String, String> failed, long elapsedNanos) {
+            this.localFiles = localFiles;
+            this.remoteObjects = remoteObjects;
+            this.unchanged = unchanged;
+            this.transferred = transferred;
+            this.transferredBytes = transferredBytes;
+            this.deleted = deleted;
+            this.failed = Collections.unmodifiableMap(new TreeMap<>(failed));
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("local=%d, remote=%d, unchanged=%d, transferred=%d (%d bytes), deleted=%d, failed=%d, elapsed=%.3fs",
+                    localFiles, remoteObjects, unchanged, transferred, transferredBytes, deleted, failed.size(),
+                    elapsedNanos / 1_000_000_000.0);
+        }
+    }
+
+    private static class LocalFile {
+        final Path path;
+        final long size;
+        final long lastModified;
+
+        LocalFile(Path path, long size, long lastModified) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private DirectorySync(Builder builder) {
+        if (builder.client == null) {
+            throw new IllegalArgumentException("client must not be null");
+        }
+        this.client = builder.client;
+        this.concurrency = builder.concurrency;
+        this.compareMode = builder.compareMode;
+        this.deleteExtras = builder.deleteExtras;
+        this.multipartThreshold = builder.multipartThreshold;
+        this.partSize = Math.max(MultipartUploader.MIN_PART_SIZE, builder.partSize);
+        this.maxAttempts = builder.maxAttempts;
+        this.scanPool = new ForkJoinPool(concurrency);
+        this.executor = TransferExecutor.of(null, concurrency);
+        this.uploader = MultipartUploader.builder()
+                .client(client)
+                .concurrency(concurrency)
+                .partSize(partSize)
+                .maxAttempts(maxAttempts)
+                .build();
+        this.downloader = RangedDownloader.builder()
+                .client(client)
+                .concurrency(concurrency)
+                .partSize(partSize)
+                .maxAttempts(maxAttempts)
+                .build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private ObjectClient client;
+        private int concurrency = 16;
+        private CompareMode compareMode = CompareMode.SIZE_MTIME;
+        private boolean deleteExtras;
+        private long multipartThreshold = 64L * 1024 * 1024;
+        private long partSize = 16L * 1024 * 1024;
+        private int maxAttempts = 3;
+
+        public Builder client(ObjectClient client) {
+            this.client = client;
+            return this;
+        }
+
+        /**
+         * 同时传输的文件数，也是遍历、列举与单个大文件分片的并发数
+         */
+        public Builder concurrency(int concurrency) {
+            if (concurrency <= 0) {
+                throw new IllegalArgumentException("concurrency must be positive: " + concurrency);
+            }
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        public Builder compareMode(CompareMode compareMode) {
+            this.compareMode = compareMode;
+            return this;
+        }
+
+        /**
+         * 是否删除目标端有而源端没有的文件
+         */
+        public Builder deleteExtras(boolean deleteExtras) {
+            this.deleteExtras = deleteExtras;
+            return this;
+        }
+
+        /**
+         * 不小于该大小的文件使用分片上传或分段下载
+         */
+        public Builder multipartThreshold(long multipartThreshold) {
+            this.multipartThreshold = multipartThreshold;
+            return this;
+        }
+
+        public Builder partSize(long partSize) {
+            this.partSize = partSize;
+            return this;
+        }
+
+        public Builder maxAttempts(int maxAttempts) {
+            this.maxAttempts = TransferRetry.checkMaxAttempts(maxAttempts);
+            return this;
+        }
+
+        public DirectorySync build() {
+            return new DirectorySync(this);
+        }
+    }
+
+    /**
+     * 把本地目录同步到 bucket 的前缀下，相对路径即前缀之后的 key
+     */
+    public Result upload(Path localRoot, String bucket, String prefix) {
+        // 源目录不存在时如果按空目录处理，开启 deleteExtras 会删光前缀下的对象
+        if (!Files.isDirectory(localRoot)) {
+            throw new IllegalArgumentException("Not a directory: " + localRoot);
+        }
+        long start = System.nanoTime();
+        String keyPrefix = normalizePrefix(prefix);
+        Map<String, LocalFile> local = new ConcurrentHashMap<>();
+        Map<String, SufyObject> remote = scan(localRoot, local, bucket, keyPrefix);
+
+        List<String> changed = new ArrayList<>();
+        for (Map.Entry<String, LocalFile> entry : local.entrySet()) {
+            if (differs(entry.getValue(), remote.get(entry.getKey()), true)) {
+                changed.add(entry.getKey());
+            }
+        }
+        Map<String, String> failed = new ConcurrentHashMap<>();
+        AtomicLong bytes = new AtomicLong();
+        long transferred = transfer(changed, failed, path -> {
+            LocalFile file = local.get(path);
+            uploadFile(file, bucket, keyPrefix + path);
+            bytes.addAndGet(file.size);
+        });
+
+        long deleted = 0;
+        if (deleteExtras) {
+            List<String> extras = new ArrayList<>();
+            for (String path : remote.keySet()) {
+                if (!local.containsKey(path)) {
+                    extras.add(keyPrefix + path);
+                }
+            }
+            if (!extras.isEmpty()) {
+                try (BulkDeleter deleter = BulkDeleter.builder()
+                        .client(client)
+                        .concurrency(Math.min(concurrency, 4))
+                        .maxAttempts(maxAttempts)
+                        .build()) {
+                    BulkDeleter.Result result = deleter.delete(bucket, extras);
+                    deleted = result.deleted;
+                    result.failed.forEach((key, code) -> failed.put(key.substring(keyPrefix.length()), "delete failed: " + code));
+                }
+            }
+        }
+        return new Result(local.size(), remote.size(), local.size() - changed.size(), transferred, bytes.get(),
+                deleted, failed, System.nanoTime() - start);
+    }
+
+    /**
+     * 把 bucket 前缀下的对象同步到本地目录
+     */
+    public Result download(String bucket, String prefix, Path localRoot) {
+        long start = System.nanoTime();
+        String keyPrefix = normalizePrefix(prefix);
+        Path root = localRoot.toAbsolutePath().normalize();
+        Map<String, LocalFile> local = new ConcurrentHashMap<>();
+        Map<String, SufyObject> remote = scan(root, local, bucket, keyPrefix);
+
+        List<String> changed = new ArrayList<>();
+        for (Map.Entry<String, SufyObject> entry : remote.entrySet()) {
+            if (differs(local.get(entry.getKey()), entry.getValue(), false)) {
+                changed.add(entry.getKey());
+            }
+        }
+        Map<String, String> failed = new ConcurrentHashMap<>();
+        AtomicLong bytes = new AtomicLong();
+        long transferred = transfer(changed, failed, path -> {
+            SufyObject object = remote.get(path);
+            Path target = root.resolve(path).normalize();
+            if (!target.startsWith(root)) {
+                throw new IOException("Key escapes target directory: " + object.key());
+            }
+            downloadFile(bucket, object, target);
+            bytes.addAndGet(object.size());
+        });
+
+        long deleted = 0;
+        if (deleteExtras) {
+            for (Map.Entry<String, LocalFile> entry : local.entrySet()) {
+                if (remote.containsKey(entry.getKey())) {
+                    continue;
+                }
+                try {
+                    Files.deleteIfExists(entry.getValue().path);
+                    deleted++;
+                } catch (IOException e) {
+                    failed.put(entry.getKey(), "delete failed: " + e.getMessage());
+                }
+            }
+        }
+        return new Result(local.size(), remote.size(), remote.size() - changed.size(), transferred, bytes.get(),
+                deleted, failed, System.nanoTime() - start);
+    }
+
+    // 同时遍历本地目录与列举前缀，返回相对路径 -> 对象
+    private Map<String, SufyObject> scan(Path localRoot, Map<String, LocalFile> local, String bucket, String keyPrefix) {
+        ForkJoinTask<Void> walking = Files.isDirectory(localRoot)
+                ? scanPool.submit(new WalkTask(localRoot, localRoot, local))
+                : null;
+        Map<String, SufyObject> remote = new HashMap<>();
+        try (ParallelLister lister = ParallelLister.builder()
+                .client(client)
+                .pool(scanPool)
+                .maxAttempts(maxAttempts)
+                .build()) {
+            for (SufyObject object : lister.list(bucket, keyPrefix, false)) {
+                if (!object.key().endsWith("/")) {
+                    remote.put(object.key().substring(keyPrefix.length()), object);
+                }
+            }
+        }
+        if (walking != null) {
+            walking.join();
+        }
+        return remote;
+    }
+
+    private boolean differs(LocalFile file, SufyObject object, boolean localIsSource) {
+        if (file == null || object == null) {
+            return true;
+        }
+        if (object.size() == null || file.size != object.size()) {
+            return true;
+        }
+        if (compareMode == CompareMode.CHECKSUM && object.eTag() != null && CONTENT_ETAG.matcher(object.eTag()).matches()) {
+            return !sameContent(file, object.eTag());
+        }
+        // 多数服务端的 LastModified 只精确到秒，按秒比较，否则上传后同一秒内写过的文件每次都会显得更新
+        long remoteSeconds = object.lastModified().getEpochSecond();
+        long localSeconds = Math.floorDiv(file.lastModified, 1000);
+        return localIsSource ? localSeconds > remoteSeconds : remoteSeconds > localSeconds;
+    }
+
+    private boolean sameContent(LocalFile file, String eTag) {
+        // 与上传时的分片规则一致，分片上传的对象才能按分片 ETag 比较
+        ChecksumVerifier verifier = new ChecksumVerifier()
+                .expectETag(eTag, MultipartUploader.partSizeFor(file.size, partSize));
+        try (InputStream in = verifier.wrap(Files.newInputStream(file.path))) {
+            in.transferTo(OutputStream.nullOutputStream());
+            return true;
+        } catch (ChecksumMismatchException e) {
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private interface FileTransfer {
+        void run(String path) throws IOException;
+    }
+
+    // 并发传输，返回成功的文件数
+    private long transfer(List<String> paths, Map<String, String> failed, FileTransfer action) {
+        AtomicLong done = new AtomicLong();
+        List<Future<?>> futures = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            futures.add(executor.submit(() -> {
+                try {
+                    action.run(path);
+                    done.incrementAndGet();
+                } catch (IOException | RuntimeException e) {
+                    failed.put(path, String.valueOf(e.getMessage()));
+                }
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw SdkClientException.create("Directory sync interrupted", e);
+        } catch (ExecutionException e) {
+            throw SdkClientException.create("Directory sync failed", e.getCause());
+        }
+        return done.get();
+    }
+
+    private void uploadFile(LocalFile file, String bucket, String key) {
+        if (file.size >= multipartThreshold) {
+            uploader.upload(bucket, key, file.path);
+            return;
+        }
+        TransferRetry.call(maxAttempts, () -> client.putObject(PutObjectRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .build(),
+                FileRequestBody.fromFile(file.path)));
+    }
+
+    private void downloadFile(String bucket, SufyObject object, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        if (object.size() >= multipartThreshold) {
+            downloader.download(bucket, object.key(), target);
+        } else {
+            Path temp = target.resolveSibling(target.getFileName() + ".download");
+            TransferRetry.call(maxAttempts, () -> {
+                try (ResponseInputStream<GetObjectResponse> ris = client.getObject(GetObjectRequest.builder()
+                        .bucket(bucket)
+                        .key(object.key())
+                        .build())) {
+                    Files.copy(ris, temp, StandardCopyOption.REPLACE_EXISTING);
+                    return null;
+                } catch (IOException e) {
+                    throw SdkClientException.create("Failed to download " + object.key(), e);
+                }
+            });
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        // 以对象的修改时间作为本地修改时间，下次按修改时间比较时视为一致
+        Files.setLastModifiedTime(target, FileTime.from(object.lastModified()));
+    }
+
+    private static String normalizePrefix(String prefix) {
+        if (prefix == null || prefix.isEmpty()) {
+            return "";
+        }
+        return prefix.endsWith("/") ? prefix : prefix + "/";
+    }
+
+    private static String relativeKey(Path root, Path file) {
+        StringBuilder key = new StringBuilder();
+        for (Path name : root.relativize(file)) {
+            if (key.length() > 0) {
+                key.append('/');
+            }
+            key.append(name);
+        }
+        return key.toString();
+    }
+
+    /**
+     * 遍历一个目录，子目录各自作为子任务并行遍历
+     */
+    private static class WalkTask extends RecursiveAction {
+        private final Path root;
+        private final Path dir;
+        private final Map<String, LocalFile> files;
+
+        WalkTask(Path root, Path dir, Map<String, LocalFile> files) {
+            this.root = root;
+            this.dir = dir;
+            this.files = files;
+        }
+
+        @Override
+        protected void compute() {
+            List<WalkTask> subdirs = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+                for (Path entry : entries) {
+                    BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (attributes.isDirectory()) {
+                        subdirs.add(new WalkTask(root, entry, files));
+                    } else if (attributes.isRegularFile()) {
+                        files.put(relativeKey(root, entry),
+                                new LocalFile(entry, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            invokeAll(subdirs);
+        }
+    }
+
+    @Override
+    public void close() {
+        uploader.close();
+        downloader.close();
+        executor.close();
+        scanPool.shutdown();
+    }
+}
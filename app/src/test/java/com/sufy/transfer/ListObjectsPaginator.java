@@ -0,0 +1,214 @@
+package com.sufy.transfer;
+
+import com.sufy.sdk.services.object.ObjectClient;
+import com.sufy.sdk.services.object.model.CommonPrefix;
+import com.sufy.sdk.services.object.model.ListObjectsV2Request;
+import com.sufy.sdk.services.object.model.ListObjectsV2Response;
+import com.sufy.sdk.services.object.model.SufyObject;
+import software.amazon.awssdk.core.exception.SdkClientException;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * listObjectsV2 的惰性分页：调用方处理第 N 页时，第 N+1 页已在后台请求，
+ * 列举耗时接近请求吞吐而不是逐页往返延迟之和。
+ * <p>
+ * 流在终止操作开始时才发出第一个请求；调用方提前停止（如 limit、findFirst）后不再请求新的页，
+ * 最多多请求一页，关闭流会取消尚未完成的预取。设置 delimiter 时可以通过 {@link #commonPrefixes()} 取得目录前缀。
+ * 每页请求按 {@link TransferRetry} 的规则重试。
+ */
+public class ListObjectsPaginator {
+    // 预取线程只执行列举请求，空闲后自动回收
+    private static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "list-objects-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ObjectClient client;
+    private final ListObjectsV2Request firstRequest;
+    private final int maxAttempts;
+    private final Executor executor;
+
+    private ListObjectsPaginator(Builder builder) {
+        if (builder.client == null) {
+            throw new IllegalArgumentException("client must not be null");
+        }
+        if (builder.bucket == null) {
+            throw new IllegalArgumentException("bucket must not be null");
+        }
+        this.client = builder.client;
+        this.firstRequest = ListObjectsV2Request.builder()
+                .bucket(builder.bucket)
+                .prefix(builder.prefix)
+                .delimiter(builder.delimiter)
+                .startAfter(builder.startAfter)
+                .maxKeys(builder.pageSize)
+                .build();
+        this.maxAttempts = builder.maxAttempts;
+        this.executor = builder.executor == null ? DEFAULT_EXECUTOR : builder.executor;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private ObjectClient client;
+        private String bucket;
+        private String prefix;
+        private String delimiter;
+        private String startAfter;
+        private int pageSize = 1000;
+        private int maxAttempts = 3;
+        private Executor executor;
+
+        public Builder client(ObjectClient client) {
+            this.client = client;
+            return this;
+        }
+
+        public Builder bucket(String bucket) {
+            this.bucket = bucket;
+            return this;
+        }
+
+        public Builder prefix(String prefix) {
+            this.prefix = prefix;
+            return this;
+        }
+
+        /**
+         * 设置后，前缀之后含有分隔符的 key 会合并为 CommonPrefix 返回
+         */
+        public Builder delimiter(String delimiter) {
+            this.delimiter = delimiter;
+            return this;
+        }
+
+        /**
+         * 从该 key 之后开始列举，不包含该 key
+         */
+        public Builder startAfter(String startAfter) {
+            this.startAfter = startAfter;
+            return this;
+        }
+
+        /**
+         * 每页的最大条目数，服务端上限为 1000
+         */
+        public Builder pageSize(int pageSize) {
+            if (pageSize <= 0 || pageSize > 1000) {
+                throw new IllegalArgumentException("pageSize must be in [1, 1000]: " + pageSize);
+            }
+            this.pageSize = pageSize;
+            return this;
+        }
+
+        public Builder maxAttempts(int maxAttempts) {
+            this.maxAttempts = TransferRetry.checkMaxAttempts(maxAttempts);
+            return this;
+        }
+
+        /**
+         * 执行预取请求的线程池，默认使用共享的守护线程池
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public ListObjectsPaginator build() {
+            return new ListObjectsPaginator(this);
+        }
+    }
+
+    /**
+     * 按页返回，每次 next 时已开始请求下一页
+     */
+    public Iterator<ListObjectsV2Response> iterator() {
+        return new PageIterator();
+    }
+
+    public Stream<ListObjectsV2Response> pages() {
+        // 通过 Supplier 延迟到终止操作开始时才创建迭代器并发出第一个请求
+        PageIterator[] iterator = new PageIterator[1];
+        return StreamSupport.stream(() -> {
+                    iterator[0] = new PageIterator();
+                    return Spliterators.spliteratorUnknownSize(iterator[0], Spliterator.ORDERED | Spliterator.NONNULL);
+                }, Spliterator.ORDERED | Spliterator.NONNULL, false)
+                .onClose(() -> {
+                    if (iterator[0] != null) {
+                        iterator[0].cancel();
+                    }
+                });
+    }
+
+    public Stream<SufyObject> objects() {
+        return pages().flatMap(page -> page.contents().stream());
+    }
+
+    public Stream<CommonPrefix> commonPrefixes() {
+        return pages().flatMap(page -> page.commonPrefixes().stream());
+    }
+
+    private CompletableFuture<ListObjectsV2Response> fetch(ListObjectsV2Request request) {
+        return CompletableFuture.supplyAsync(() -> TransferRetry.call(maxAttempts, () -> client.listObjectsV2(request)), executor);
+    }
+
+    private class PageIterator implements Iterator<ListObjectsV2Response> {
+        private CompletableFuture<ListObjectsV2Response> pending = fetch(firstRequest);
+
+        @Override
+        public synchronized boolean hasNext() {
+            return pending != null;
+        }
+
+        @Override
+        public synchronized ListObjectsV2Response next() {
+            if (pending == null) {
+                throw new NoSuchElementException();
+            }
+            ListObjectsV2Response page;
+            try {
+                page = pending.join();
+            } catch (CompletionException e) {
+                pending = null;
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw SdkClientException.create("Failed to list objects", e.getCause());
+            } catch (CancellationException e) {
+                pending = null;
+                throw e;
+            }
+            if (Boolean.TRUE.equals(page.isTruncated()) && page.nextContinuationToken() != null) {
+                pending = fetch(firstRequest.toBuilder()
+                        .continuationToken(page.nextContinuationToken())
+                        .startAfter(null)
+                        .build());
+            } else {
+                pending = null;
+            }
+            return page;
+        }
+
+        synchronized void cancel() {
+            if (pending != null) {
+                pending.cancel(false);
+                pending = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.sufy.transfer;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.sufy.sdk.services.object.ObjectClient;
+import com.sufy.sdk.services.object.model.*;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 清理遗留的分片上传：按页 listMultipartUploads，发起时间早于阈值的上传并发 abortMultipartUpload。
+ * <p>
+ * 列举在调用线程上进行，取消任务交给线程池，在途任务数不超过 2 × concurrency，
+ * 上传数量再多内存占用也不变；取消请求可以限速，避免定时任务挤占业务的请求配额。
+ * 开启统计时取消前先 listParts 累加分片大小，得到回收的字节数，每个上传多花一次或几次请求。
+ */
+public class MultipartUploadReaper implements AutoCloseable {
+    private final ObjectClient client;
+    private final int concurrency;
+    private final Duration olderThan;
+    private final RateLimiter rateLimiter;
+    private final boolean countBytes;
+    private final boolean dryRun;
+    private final int maxAttempts;
+    private final Clock clock;
+    private final TransferExecutor executor;
+
+    public static class Result {
+        public final long scanned;
+        public final long expired;
+        // 实际取消成功的上传数，dryRun 时为 0
+        public final long aborted;
+        // 回收的分片数与字节数，dryRun 时为取消过期上传后可以回收的量
+        public final long parts;
+        public final long bytesReclaimed;
+        // 取消失败的 uploadId -> 错误信息
+        public final Map<String, String> failed;
+        public final long elapsedNanos;
+
+        Result(long scanned, long expired, long aborted, long parts, long bytesReclaimed,
+               Map<String, String> failed, long elapsedNanos) {
+            this.scanned = scanned;
+            this.expired = expired;
+            this.aborted = aborted;
+            this.parts = parts;
+            this.bytesReclaimed = bytesReclaimed;
+            this.failed = Collections.unmodifiableMap(new TreeMap<>(failed));
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("scanned=%d, expired=%d, aborted=%d, failed=%d, parts=%d, bytesReclaimed=%d, elapsed=%.3fs",
+                    scanned, expired, aborted, failed.size(), parts, bytesReclaimed, elapsedNanos / 1_000_000_000.0);
+        }
+    }
+
+    private MultipartUploadReaper(Builder builder) {
+        if (builder.client == null) {
+            throw new IllegalArgumentException("client must not be null");
+        }
+        this.client = builder.client;
+        this.concurrency = builder.concurrency;
+        this.olderThan = builder.olderThan;
+        this.rateLimiter = builder.abortsPerSecond > 0 ? RateLimiter.create(builder.abortsPerSecond) : null;
+        this.countBytes = builder.countBytes;
+        this.dryRun = builder.dryRun;
+        this.maxAttempts = builder.maxAttempts;
+        this.clock = builder.clock;
+        this.executor = TransferExecutor.of(builder.executor, concurrency);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private ObjectClient client;
+        private int concurrency = 8;
+        private Duration olderThan = Duration.ofDays(7);
+        private double abortsPerSecond;
+        private boolean countBytes = true;
+        private boolean dryRun;
+        private int maxAttempts = 3;
+        private Clock clock = Clock.systemUTC();
+        private ExecutorService executor;
+
+        public Builder client(ObjectClient client) {
+            this.client = client;
+            return this;
+        }
+
+        /**
+         * 同时进行的取消任务数
+         */
+        public Builder concurrency(int concurrency) {
+            if (concurrency <= 0) {
+                throw new IllegalArgumentException("concurrency must be positive: " + concurrency);
+            }
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        /**
+         * 只取消发起时间早于当前时间减去该时长的上传
+         */
+        public Builder olderThan(Duration olderThan) {
+            if (olderThan.isNegative()) {
+                throw new IllegalArgumentException("olderThan must not be negative: " + olderThan);
+            }
+            this.olderThan = olderThan;
+            return this;
+        }
+
+        /**
+         * 每秒最多发出的取消请求数，不大于 0 时不限速
+         */
+        public Builder abortsPerSecond(double abortsPerSecond) {
+            this.abortsPerSecond = abortsPerSecond;
+            return this;
+        }
+
+        /**
+         * 是否在取消前通过 listParts 统计回收的字节数
+         */
+        public Builder countBytes(boolean countBytes) {
+            this.countBytes = countBytes;
+            return this;
+        }
+
+        /**
+         * 只统计不取消，结果的 aborted 为 0，parts 与 bytesReclaimed 为可以回收的量
+         */
+        public Builder dryRun(boolean dryRun) {
+            this.dryRun = dryRun;
+            return this;
+        }
+
+        public Builder maxAttempts(int maxAttempts) {
+            this.maxAttempts = TransferRetry.checkMaxAttempts(maxAttempts);
+            return this;
+        }
+
+        public Builder clock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        /**
+         * 使用调用方提供的线程池，不设置时按 concurrency 新建；调用方的线程池不会随 close 关闭
+         */
+        public Builder executor(ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public MultipartUploadReaper build() {
+            return new MultipartUploadReaper(this);
+        }
+    }
+
+    public Result reap(String bucket) {
+        return reap(bucket, null);
+    }
+
+    /**
+     * 取消前缀下所有过期的分片上传，单个上传取消失败记录在结果中而不抛异常；列举失败时抛出
+     */
+    public Result reap(String bucket, String prefix) {
+        long start = System.nanoTime();
+        Instant cutoff = clock.instant().minus(olderThan);
+        LongAdder aborted = new LongAdder();
+        LongAdder parts = new LongAdder();
+        LongAdder bytes = new LongAdder();
+        Map<String, String> failed = new ConcurrentHashMap<>();
+        // 限制在途任务数，列举速度快于取消时在此等待
+        Semaphore inFlight = new Semaphore(2 * concurrency);
+        long scanned = 0;
+        long expired = 0;
+
+        String keyMarker = null;
+        String uploadIdMarker = null;
+        ListMultipartUploadsResponse response;
+        try {
+            do {
+                ListMultipartUploadsRequest request = ListMultipartUploadsRequest.builder()
+                        .bucket(bucket)
+                        .prefix(prefix)
+                        .keyMarker(keyMarker)
+                        .uploadIdMarker(uploadIdMarker)
+                        .maxUploads(1000)
+                        .build();
+                response = TransferRetry.call(maxAttempts, () -> client.listMultipartUploads(request));
+                for (MultipartUpload upload : response.uploads()) {
+                    scanned++;
+                    if (upload.initiated() == null || !upload.initiated().isBefore(cutoff)) {
+                        continue;
+                    }
+                    expired++;
+                    inFlight.acquire();
+                    try {
+                        executor.execute(() -> {
+                            try {
+                                reapOne(bucket, upload, aborted, parts, bytes, failed);
+                            } finally {
+                                inFlight.release();
+                            }
+                        });
+                    } catch (RuntimeException e) {
+                        inFlight.release();
+                        throw e;
+                    }
+                }
+                keyMarker = response.nextKeyMarker();
+                uploadIdMarker = response.nextUploadIdMarker();
+            } while (Boolean.TRUE.equals(response.isTruncated()));
+            // 等待所有在途任务结束
+            inFlight.acquire(2 * concurrency);
+            inFlight.release(2 * concurrency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw SdkClientException.create("Interrupted while reaping multipart uploads", e);
+        }
+        return new Result(scanned, expired, aborted.sum(), parts.sum(), bytes.sum(), failed, System.nanoTime() - start);
+    }
+
+    private void reapOne(String bucket, MultipartUpload upload, LongAdder aborted, LongAdder parts, LongAdder bytes,
+                         Map<String, String> failed) {
+        try {
+            long partCount = 0;
+            long size = 0;
+            if (countBytes) {
+                Integer marker = null;
+                ListPartsResponse response;
+                do {
+                    ListPartsRequest request = ListPartsRequest.builder()
+                            .bucket(bucket)
+                            .key(upload.key())
+                            .uploadId(upload.uploadId())
+                            .partNumberMarker(marker)
+                            .build();
+                    response = TransferRetry.call(maxAttempts, () -> client.listParts(request));
+                    for (Part part : response.parts()) {
+                        partCount++;
+                        size += part.size() == null ? 0 : part.size();
+                    }
+                    marker = response.nextPartNumberMarker();
+                } while (Boolean.TRUE.equals(response.isTruncated()));
+            }
+            if (!dryRun) {
+                if (rateLimiter != null) {
+                    rateLimiter.acquire();
+                }
+                TransferRetry.call(maxAttempts, () -> client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                        .bucket(bucket)
+                        .key(upload.key())
+                        .uploadId(upload.uploadId())
+                        .build()));
+                aborted.increment();
+            }
+            parts.add(partCount);
+            bytes.add(size);
+        } catch (SdkServiceException e) {
+            // 已被其他任务完成或取消，不算失败，但也没有回收字节
+            if (e.statusCode() != 404) {
+                failed.put(upload.uploadId(), e.getMessage());
+            }
+        } catch (RuntimeException e) {
+            failed.put(upload.uploadId(), String.valueOf(e.getMessage()));
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
@@ -0,0 +1,551 @@
+package com.sufy.transfer;
+
+import com.sufy.sdk.services.object.ObjectClient;
+import com.sufy.sdk.services.object.model.*;
+import com.sufy.util.FileRequestBody;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.ContentStreamProvider;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * 并发分片上传：createMultipartUpload -> 并发 uploadPart -> completeMultipartUpload。
+ * <p>
+ * 数据按分片顺序从流中读出，同时最多只有 concurrency 个分片缓冲区，内存占用上限为 concurrency × partSize；
+ * 缓冲区在分片上传完成后复用。已知对象大小时，分片大小会自动放大以满足 10000 个分片的上限。
+ * 从文件上传时分片直接从文件定位读取，不占用分片缓冲区。
+ * 单个分片失败会按 {@link TransferRetry} 重试，重试仍失败则取消整个上传。
+ * 从文件上传时可以使用 {@link #uploadResumable(CreateMultipartUploadRequest, Path, Path)}，
+ * 进程重启后只上传缺少的分片。
+ */
+public class MultipartUploader implements AutoCloseable {
+    public static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    public static final int MAX_PARTS = 10000;
+    // 分片缓冲区使用 byte[]，单个分片不能超过数组上限
+    public static final long MAX_BUFFERED_PART_SIZE = Integer.MAX_VALUE - 8;
+    private static final long PART_SIZE_ALIGNMENT = 1024 * 1024;
+    private static final String PART_CONTENT_TYPE = "application/octet-stream";
+
+    private final ObjectClient client;
+    private final int concurrency;
+    private final long partSize;
+    private final int maxAttempts;
+    private final TransferExecutor executor;
+
+    private MultipartUploader(Builder builder) {
+        if (builder.client == null) {
+            throw new IllegalArgumentException("client must not be null");
+        }
+        this.client = builder.client;
+        this.concurrency = builder.concurrency;
+        this.partSize = Math.max(MIN_PART_SIZE, builder.partSize);
+        this.maxAttempts = builder.maxAttempts;
+        this.executor = TransferExecutor.of(builder.executor, concurrency);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private ObjectClient client;
+        private int concurrency = 4;
+        private long partSize = 8L * 1024 * 1024;
+        private int maxAttempts = 3;
+        private ExecutorService executor;
+
+        public Builder client(ObjectClient client) {
+            this.client = client;
+            return this;
+        }
+
+        /**
+         * 同时上传的分片数，也是分片缓冲区的个数
+         */
+        public Builder concurrency(int concurrency) {
+            if (concurrency <= 0) {
+                throw new IllegalArgumentException("concurrency must be positive: " + concurrency);
+            }
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        /**
+         * 最小分片大小，不足 5MB 时按 5MB 处理
+         */
+        public Builder partSize(long partSize) {
+            this.partSize = partSize;
+            return this;
+        }
+
+        /**
+         * 单个分片的最大尝试次数（含首次）
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            this.maxAttempts = TransferRetry.checkMaxAttempts(maxAttempts);
+            return this;
+        }
+
+        /**
+         * 使用调用方提供的线程池，不设置时按 concurrency 新建；调用方的线程池不会随 close 关闭
+         */
+        public Builder executor(ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public MultipartUploader build() {
+            return new MultipartUploader(this);
+        }
+    }
+
+    /**
+     * 根据对象大小计算分片大小：不小于 minPartSize，且分片数不超过 10000，按 1MB 对齐
+     */
+    public static long partSizeFor(long objectSize, long minPartSize) {
+        long size = Math.max(MIN_PART_SIZE, minPartSize);
+        if (objectSize > size * MAX_PARTS) {
+            long required = (objectSize + MAX_PARTS - 1) / MAX_PARTS;
+            size = (required + PART_SIZE_ALIGNMENT - 1) / PART_SIZE_ALIGNMENT * PART_SIZE_ALIGNMENT;
+        }
+        return size;
+    }
+
+    public CompleteMultipartUploadResponse upload(String bucket, String key, Path file) {
+        return upload(CreateMultipartUploadRequest.builder().bucket(bucket).key(key).build(), file);
+    }
+
+    /**
+     * 从文件上传时每个分片直接以文件中的一段作为请求体，不经过分片缓冲区
+     */
+    public CompleteMultipartUploadResponse upload(CreateMultipartUploadRequest request, Path file) {
+        long contentLength;
+        try {
+            contentLength = Files.size(file);
+        } catch (IOException e) {
+            throw SdkClientException.create("Failed to read " + file, e);
+        }
+        long size = partSizeFor(contentLength, partSize);
+        String bucket = request.bucket();
+        String key = request.key();
+        String uploadId = client.createMultipartUpload(request).uploadId();
+
+        List<Future<CompletedPart>> futures = new ArrayList<>();
+        try {
+            int partNumber = 1;
+            long offset = 0;
+            do {
+                final int number = partNumber++;
+                final long partOffset = offset;
+                final long length = Math.min(size, contentLength - offset);
+                futures.add(executor.submit(() -> uploadPart(bucket, key, uploadId, number, length,
+                        FileRequestBody.contentProvider(file, partOffset, length))));
+                offset += length;
+            } while (offset < contentLength);
+            return complete(bucket, key, uploadId, futures);
+        } catch (RuntimeException | InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            abortQuietly(bucket, key, uploadId);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+                throw SdkClientException.create("Multipart upload interrupted: " + key, e);
+            }
+            throw (RuntimeException) e;
+        }
+    }
+
+    public CompleteMultipartUploadResponse uploadResumable(String bucket, String key, Path file, Path journal) {
+        return uploadResumable(CreateMultipartUploadRequest.builder().bucket(bucket).key(key).build(), file, journal);
+    }
+
+    /**
+     * 可续传的文件上传：每完成一个分片就把分片号、ETag 与 CRC32C 追加到进度文件 journal。
+     * <p>
+     * 进度文件存在且对应同一对象、源文件大小与修改时间未变时，沿用其中的 uploadId 与分片大小，
+     * 并用 listParts 对账：ETag 与大小一致的分片不再上传；服务端已有但未来得及记录的分片，
+     * 与本地文件对应片段的 MD5 一致时同样保留。其余分片重新上传。
+     * 源文件已变化时取消旧的上传重新开始；上传任务已不存在时重新开始。
+     * <p>
+     * 失败时不取消上传并保留进度文件，再次调用即可续传；完成后删除进度文件。
+     */
+    public CompleteMultipartUploadResponse uploadResumable(CreateMultipartUploadRequest request, Path file, Path journalPath) {
+        String bucket = request.bucket();
+        String key = request.key();
+        long contentLength;
+        long lastModified;
+        UploadJournal journal;
+        Map<Integer, CompletedPart> uploaded = new TreeMap<>();
+        try {
+            contentLength = Files.size(file);
+            lastModified = Files.getLastModifiedTime(file).toMillis();
+            journal = resumeJournal(journalPath, file, contentLength, lastModified, bucket, key, uploaded);
+            if (journal == null) {
+                String uploadId = client.createMultipartUpload(request).uploadId();
+                journal = UploadJournal.create(journalPath, new UploadJournal.Header(bucket, key, uploadId,
+                        contentLength, lastModified, partSizeFor(contentLength, partSize)));
+            }
+        } catch (IOException e) {
+            throw SdkClientException.create("Failed to prepare resumable upload of " + file, e);
+        }
+
+        String uploadId = journal.header().uploadId;
+        long size = journal.header().partSize;
+        int partCount = partCount(contentLength, size);
+        List<Future<CompletedPart>> futures = new ArrayList<>(partCount);
+        try {
+            for (int number = 1; number <= partCount; number++) {
+                CompletedPart done = uploaded.get(number);
+                if (done != null) {
+                    futures.add(CompletableFuture.completedFuture(done));
+                    continue;
+                }
+                final int partNumber = number;
+                final long offset = (number - 1) * size;
+                final long length = Math.min(size, contentLength - offset);
+                final UploadJournal journalRef = journal;
+                futures.add(executor.submit(() -> uploadJournaledPart(bucket, key, uploadId, partNumber, length,
+                        FileRequestBody.contentProvider(file, offset, length), journalRef)));
+            }
+            CompleteMultipartUploadResponse response = complete(bucket, key, uploadId, futures);
+            journal.delete();
+            return response;
+        } catch (RuntimeException | InterruptedException | IOException e) {
+            futures.forEach(f -> f.cancel(true));
+            closeQuietly(journal);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+            throw SdkClientException.create("Resumable upload failed, resume with journal " + journalPath, e);
+        }
+    }
+
+    /**
+     * 打开并对账已有的进度文件，可以沿用的分片放入 uploaded；不能续传时返回 null。
+     * 进度文件无法解析时拿不到 uploadId，重新开始会让原来的上传任务和分片无人回收，因此直接报错，
+     * 由调用方取消原任务（或交给 {@link MultipartUploadReaper}）后删除进度文件再重试
+     */
+    private UploadJournal resumeJournal(Path journalPath, Path file, long contentLength, long lastModified,
+                                        String bucket, String key, Map<Integer, CompletedPart> uploaded) throws IOException {
+        if (!Files.exists(journalPath)) {
+            return null;
+        }
+        UploadJournal journal;
+        try {
+            journal = UploadJournal.open(journalPath);
+        } catch (IOException e) {
+            throw SdkClientException.create("Unreadable upload journal " + journalPath
+                    + ", abort the upload it recorded and delete the journal before retrying", e);
+        }
+        UploadJournal.Header header = journal.header();
+        if (!bucket.equals(header.bucket) || !key.equals(header.key)
+                || header.fileSize != contentLength || header.lastModified != lastModified) {
+            journal.close();
+            abortQuietly(header.bucket, header.key, header.uploadId);
+            return null;
+        }
+        Map<Integer, Part> remote = listAllParts(bucket, key, header.uploadId);
+        if (remote == null) {
+            journal.close();
+            return null;
+        }
+
+        Map<Integer, UploadJournal.PartRecord> recorded = journal.parts();
+        int partCount = partCount(contentLength, header.partSize);
+        for (Part part : remote.values()) {
+            int number = part.partNumber();
+            if (number > partCount) {
+                continue;
+            }
+            long expectedSize = Math.min(header.partSize, contentLength - (number - 1) * header.partSize);
+            if (part.size() == null || part.size() != expectedSize) {
+                continue;
+            }
+            UploadJournal.PartRecord record = recorded.get(number);
+            if (record != null) {
+                if (!unquote(record.eTag).equals(unquote(part.eTag()))) {
+                    continue;
+                }
+            } else {
+                // 上传完成后、写入记录前退出的分片，核对本地数据后补记，CRC32C 未知记为 -1
+                byte[] md5 = md5(file, (number - 1) * header.partSize, expectedSize);
+                if (!HexFormat.of().formatHex(md5).equalsIgnoreCase(unquote(part.eTag()))) {
+                    continue;
+                }
+                journal.append(new UploadJournal.PartRecord(number, part.eTag(), expectedSize, -1));
+            }
+            uploaded.put(number, CompletedPart.builder().partNumber(number).eTag(part.eTag()).build());
+        }
+        return journal;
+    }
+
+    // 上传任务不存在（已完成、已取消或过期）时返回 null
+    private Map<Integer, Part> listAllParts(String bucket, String key, String uploadId) {
+        Map<Integer, Part> parts = new TreeMap<>();
+        Integer marker = null;
+        ListPartsResponse response;
+        do {
+            ListPartsRequest request = ListPartsRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .partNumberMarker(marker)
+                    .build();
+            try {
+                response = TransferRetry.call(maxAttempts, () -> client.listParts(request));
+            } catch (SdkServiceException e) {
+                if (e.statusCode() == 404) {
+                    return null;
+                }
+                throw e;
+            }
+            for (Part part : response.parts()) {
+                parts.put(part.partNumber(), part);
+            }
+            marker = response.nextPartNumberMarker();
+        } while (Boolean.TRUE.equals(response.isTruncated()));
+        return parts;
+    }
+
+    private CompletedPart uploadJournaledPart(String bucket, String key, String uploadId, int partNumber, long length,
+                                              ContentStreamProvider content, UploadJournal journal) throws IOException {
+        // 记录最后一次完整发送的数据的 CRC32C，重试时重新计算
+        AtomicReference<CRC32C> checksum = new AtomicReference<>();
+        CompletedPart part = uploadPart(bucket, key, uploadId, partNumber, length, () -> {
+            CRC32C crc32c = new CRC32C();
+            checksum.set(crc32c);
+            return new CheckedInputStream(content.newStream(), crc32c);
+        });
+        journal.append(new UploadJournal.PartRecord(partNumber, part.eTag(), length, checksum.get().getValue()));
+        return part;
+    }
+
+    private static int partCount(long contentLength, long partSize) {
+        return contentLength == 0 ? 1 : (int) ((contentLength + partSize - 1) / partSize);
+    }
+
+    private static byte[] md5(Path file, long offset, long length) throws IOException {
+        MessageDigest md5;
+        try {
+            md5 = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = FileRequestBody.contentProvider(file, offset, length).newStream()) {
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                md5.update(buffer, 0, n);
+            }
+        }
+        return md5.digest();
+    }
+
+    private static String unquote(String eTag) {
+        if (eTag != null && eTag.length() >= 2 && eTag.startsWith("\"") && eTag.endsWith("\"")) {
+            return eTag.substring(1, eTag.length() - 1);
+        }
+        return eTag == null ? "" : eTag;
+    }
+
+    private static void closeQuietly(UploadJournal journal) {
+        try {
+            journal.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    public CompleteMultipartUploadResponse upload(String bucket, String key, InputStream in, long contentLength) {
+        return upload(CreateMultipartUploadRequest.builder().bucket(bucket).key(key).build(), in, contentLength);
+    }
+
+    /**
+     * @param contentLength 流的总长度，未知时传 -1，此时使用配置的分片大小
+     */
+    public CompleteMultipartUploadResponse upload(CreateMultipartUploadRequest request, InputStream in, long contentLength) {
+        long size = contentLength < 0 ? partSize : partSizeFor(contentLength, partSize);
+        if (size > MAX_BUFFERED_PART_SIZE) {
+            throw new IllegalArgumentException("Object too large for buffered multipart upload: " + contentLength);
+        }
+        int bufferSize = (int) size;
+        String bucket = request.bucket();
+        String key = request.key();
+        String uploadId = client.createMultipartUpload(request).uploadId();
+
+        BlockingQueue<byte[]> buffers = new ArrayBlockingQueue<>(concurrency);
+        int allocated = 0;
+        List<Future<CompletedPart>> futures = new ArrayList<>();
+        try {
+            int partNumber = 1;
+            while (true) {
+                failFast(futures);
+                // 没有空闲缓冲区时等待某个分片上传完成，以此限制内存与在途分片数
+                byte[] buffer = buffers.poll();
+                if (buffer == null) {
+                    if (allocated < concurrency) {
+                        buffer = new byte[bufferSize];
+                        allocated++;
+                    } else {
+                        buffer = buffers.take();
+                    }
+                }
+                int n = readFully(in, buffer, bufferSize);
+                if (n == 0 && partNumber > 1) {
+                    buffers.offer(buffer);
+                    break;
+                }
+                if (partNumber > MAX_PARTS) {
+                    throw new IllegalArgumentException("Stream exceeds " + MAX_PARTS + " parts of " + bufferSize + " bytes");
+                }
+                final byte[] data = buffer;
+                final int length = n;
+                final int number = partNumber++;
+                futures.add(executor.submit(() -> {
+                    try {
+                        return uploadPart(bucket, key, uploadId, number, data, length);
+                    } finally {
+                        buffers.offer(data);
+                    }
+                }));
+                if (n < bufferSize) {
+                    break;
+                }
+            }
+
+            return complete(bucket, key, uploadId, futures);
+        } catch (RuntimeException | InterruptedException | IOException e) {
+            futures.forEach(f -> f.cancel(true));
+            abortQuietly(bucket, key, uploadId);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+            throw SdkClientException.create("Multipart upload failed: " + key, e);
+        }
+    }
+
+    private CompleteMultipartUploadResponse complete(String bucket, String key, String uploadId,
+                                                     List<Future<CompletedPart>> futures) throws InterruptedException {
+        List<CompletedPart> parts = new ArrayList<>(futures.size());
+        for (Future<CompletedPart> future : futures) {
+            parts.add(await(future));
+        }
+        parts.sort(Comparator.comparing(CompletedPart::partNumber));
+        return client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .uploadId(uploadId)
+                .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                .build()
+        );
+    }
+
+    private CompletedPart uploadPart(String bucket, String key, String uploadId, int partNumber, byte[] data, int length) {
+        // 不复制缓冲区，重试时重新打开同一段数据
+        return uploadPart(bucket, key, uploadId, partNumber, length, () -> new ByteArrayInputStream(data, 0, length));
+    }
+
+    private CompletedPart uploadPart(String bucket, String key, String uploadId, int partNumber, long length,
+                                     ContentStreamProvider content) {
+        UploadPartRequest request = UploadPartRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .uploadId(uploadId)
+                .partNumber(partNumber)
+                .build();
+        UploadPartResponse response = TransferRetry.call(maxAttempts, () -> client.uploadPart(request,
+                RequestBody.fromContentProvider(content, length, PART_CONTENT_TYPE)));
+        return CompletedPart.builder().partNumber(partNumber).eTag(response.eTag()).build();
+    }
+
+    // 已完成的分片中有失败的，尽早停止读取
+    private static void failFast(List<Future<CompletedPart>> futures) throws InterruptedException {
+        for (Future<CompletedPart> future : futures) {
+            if (future.isDone()) {
+                await(future);
+            }
+        }
+    }
+
+    private static CompletedPart await(Future<CompletedPart> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SdkException) {
+                throw (SdkException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw SdkClientException.create("Part upload failed", cause);
+        }
+    }
+
+    private void abortQuietly(String bucket, String key, String uploadId) {
+        try {
+            client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .build()
+            );
+        } catch (Exception e) {
+            // ignore, 未取消的分片可以由清理任务回收
+        }
+    }
+
+    static int readFully(InputStream in, byte[] buffer, int length) throws IOException {
+        int total = 0;
+        while (total < length) {
+            int n = in.read(buffer, total, length - total);
+            if (n < 0) {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public long getPartSize() {
+        return partSize;
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
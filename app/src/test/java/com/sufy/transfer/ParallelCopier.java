@@ -0,0 +1,252 @@
+package com.sufy.transfer;
+
+import com.sufy.sdk.services.object.ObjectClient;
+import com.sufy.sdk.services.object.model.*;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * 服务端拷贝：先 headObject 获取源对象大小，小对象直接 copyObject，
+ * 超过阈值的对象按 copySourceRange 并发 uploadPartCopy 后完成分片上传。
+ * <p>
+ * 数据全部在服务端拷贝，客户端只发送请求，耗时取决于分片数与并发数而不是对象大小。
+ * 分片拷贝不会自动继承源对象的元数据，这里用 headObject 的结果填充 createMultipartUpload，
+ * 包括 Content-Type、Content-Encoding、Content-Disposition、Content-Language、Cache-Control、Expires、
+ * 存储类型与用户元数据。每个分片都带上 x-sufy-copy-source-if-match，拷贝过程中源对象被覆盖时分片失败，
+ * 不会拼出新旧内容混杂的对象。
+ */
+public class ParallelCopier implements AutoCloseable {
+    // copyObject 单次可拷贝的最大对象大小
+    public static final long DEFAULT_MULTIPART_THRESHOLD = 5L * 1024 * 1024 * 1024;
+
+    private final ObjectClient client;
+    private final int concurrency;
+    private final long partSize;
+    private final long multipartThreshold;
+    private final int maxAttempts;
+    private final TransferExecutor executor;
+
+    public static class CopyResult {
+        public final boolean multipart;
+        public final int parts;
+        public final long size;
+        public final String eTag;
+
+        CopyResult(boolean multipart, int parts, long size, String eTag) {
+            this.multipart = multipart;
+            this.parts = parts;
+            this.size = size;
+            this.eTag = eTag;
+        }
+    }
+
+    private ParallelCopier(Builder builder) {
+        if (builder.client == null) {
+            throw new IllegalArgumentException("client must not be null");
+        }
+        this.client = builder.client;
+        this.concurrency = builder.concurrency;
+        this.partSize = Math.max(MultipartUploader.MIN_PART_SIZE, builder.partSize);
+        this.multipartThreshold = builder.multipartThreshold;
+        this.maxAttempts = builder.maxAttempts;
+        this.executor = TransferExecutor.of(builder.executor, concurrency);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private ObjectClient client;
+        private int concurrency = 16;
+        private long partSize = 256L * 1024 * 1024;
+        private long multipartThreshold = DEFAULT_MULTIPART_THRESHOLD;
+        private int maxAttempts = 3;
+        private ExecutorService executor;
+
+        public Builder client(ObjectClient client) {
+            this.client = client;
+            return this;
+        }
+
+        /**
+         * 同时进行的分片拷贝数
+         */
+        public Builder concurrency(int concurrency) {
+            if (concurrency <= 0) {
+                throw new IllegalArgumentException("concurrency must be positive: " + concurrency);
+            }
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        /**
+         * 最小分片大小，不足 5MB 时按 5MB 处理
+         */
+        public Builder partSize(long partSize) {
+            this.partSize = partSize;
+            return this;
+        }
+
+        /**
+         * 源对象大于该值时使用分片拷贝
+         */
+        public Builder multipartThreshold(long multipartThreshold) {
+            this.multipartThreshold = multipartThreshold;
+            return this;
+        }
+
+        /**
+         * 单个分片的最大尝试次数（含首次）
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            this.maxAttempts = TransferRetry.checkMaxAttempts(maxAttempts);
+            return this;
+        }
+
+        /**
+         * 使用调用方提供的线程池，不设置时按 concurrency 新建；调用方的线程池不会随 close 关闭
+         */
+        public Builder executor(ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public ParallelCopier build() {
+            return new ParallelCopier(this);
+        }
+    }
+
+    public CopyResult copy(String sourceBucket, String sourceKey, String destinationBucket, String destinationKey) {
+        HeadObjectResponse head = client.headObject(HeadObjectRequest.builder()
+                .bucket(sourceBucket)
+                .key(sourceKey)
+                .build()
+        );
+        long size = head.contentLength();
+        if (size <= multipartThreshold) {
+            CopyObjectResponse response = TransferRetry.call(maxAttempts, () -> client.copyObject(CopyObjectRequest.builder()
+                    .sourceBucket(sourceBucket)
+                    .sourceKey(sourceKey)
+                    .destinationBucket(destinationBucket)
+                    .destinationKey(destinationKey)
+                    .build()
+            ));
+            return new CopyResult(false, 0, size, response.copyObjectResult().eTag());
+        }
+        return multipartCopy(sourceBucket, sourceKey, destinationBucket, destinationKey, head);
+    }
+
+    private CopyResult multipartCopy(String sourceBucket, String sourceKey, String destinationBucket,
+                                     String destinationKey, HeadObjectResponse head) {
+        long size = head.contentLength();
+        long partBytes = MultipartUploader.partSizeFor(size, partSize);
+        String uploadId = client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(destinationBucket)
+                .key(destinationKey)
+                .contentType(head.contentType())
+                .contentEncoding(head.contentEncoding())
+                .contentDisposition(head.contentDisposition())
+                .contentLanguage(head.contentLanguage())
+                .cacheControl(head.cacheControl())
+                .expires(head.expires())
+                .storageClass(head.storageClass())
+                .metadata(head.metadata())
+                .build()
+        ).uploadId();
+
+        List<Future<CompletedPart>> futures = new ArrayList<>();
+        try {
+            int partNumber = 1;
+            for (long offset = 0; offset < size; offset += partBytes) {
+                final int number = partNumber++;
+                final String range = String.format("bytes=%d-%d", offset, Math.min(size, offset + partBytes) - 1);
+                futures.add(executor.submit(() -> {
+                    UploadPartCopyResponse response = TransferRetry.call(maxAttempts, () -> client.uploadPartCopy(
+                            UploadPartCopyRequest.builder()
+                                    .sourceBucket(sourceBucket)
+                                    .sourceKey(sourceKey)
+                                    .destinationBucket(destinationBucket)
+                                    .destinationKey(destinationKey)
+                                    .uploadId(uploadId)
+                                    .partNumber(number)
+                                    .copySourceRange(range)
+                                    .copySourceIfMatch(head.eTag())
+                                    .build()
+                    ));
+                    return CompletedPart.builder().partNumber(number).eTag(response.copyPartResult().eTag()).build();
+                }));
+            }
+
+            List<CompletedPart> parts = new ArrayList<>(futures.size());
+            for (Future<CompletedPart> future : futures) {
+                parts.add(await(future));
+            }
+            parts.sort(Comparator.comparing(CompletedPart::partNumber));
+            CompleteMultipartUploadResponse response = client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(destinationBucket)
+                    .key(destinationKey)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                    .build()
+            );
+            return new CopyResult(true, parts.size(), size, response.eTag());
+        } catch (RuntimeException | InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            abortQuietly(destinationBucket, destinationKey, uploadId);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+                throw SdkClientException.create("Multipart copy interrupted: " + destinationKey, e);
+            }
+            throw (RuntimeException) e;
+        }
+    }
+
+    private static CompletedPart await(Future<CompletedPart> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SdkException) {
+                throw (SdkException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw SdkClientException.create("Part copy failed", cause);
+        }
+    }
+
+    private void abortQuietly(String bucket, String key, String uploadId) {
+        try {
+            client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .build()
+            );
+        } catch (Exception e) {
+            // ignore, 未取消的分片可以由清理任务回收
+        }
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public long getPartSize() {
+        return partSize;
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
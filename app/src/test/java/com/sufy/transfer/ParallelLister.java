@@ -0,0 +1,391 @@
+package com.sufy.transfer;
+
+import com.sufy.sdk.services.object.ObjectClient;
+import com.sufy.sdk.services.object.model.CommonPrefix;
+import com.sufy.sdk.services.object.model.ListObjectsV2Request;
+import com.sufy.sdk.services.object.model.ListObjectsV2Response;
+import com.sufy.sdk.services.object.model.SufyObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 并行列举 bucket：listObjectsV2 的续传标记只能顺序使用，这里先把 key 空间切成互不相交的分区，
+ * 各分区在 ForkJoinPool 上同时列举。
+ * <p>
+ * 分区方式有两种：
+ * <ul>
+ *     <li>{@link Partitioning#DELIMITER}：按分隔符列出子目录前缀，每个子目录作为一个子任务递归拆分，
+ *     超过 maxDepth 后不再拆分；适合按目录组织的 bucket。</li>
+ *     <li>{@link Partitioning#KEY_RANGE}：在前缀之后按首字符切成若干 key 区间，每个区间用 startAfter 起始、
+ *     遇到超出上界的 key 即停止；适合单个目录下大量 key 的情况，也可以指定区间边界。</li>
+ * </ul>
+ * 需要有序结果时各分区的结果按 key 顺序合并，不需要时直接交给调用方的回调，回调会在多个线程上执行。
+ */
+public class ParallelLister implements AutoCloseable {
+    // 默认按可打印 ASCII 字符切分区间
+    private static final char FIRST_SPLIT_CHAR = '!';
+    private static final char LAST_SPLIT_CHAR = '~';
+
+    public enum Partitioning {
+        DELIMITER,
+        KEY_RANGE
+    }
+
+    private final ObjectClient client;
+    private final Partitioning partitioning;
+    private final String delimiter;
+    private final int maxDepth;
+    private final int partitions;
+    private final List<String> boundaries;
+    private final int pageSize;
+    private final int maxAttempts;
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+
+    private ParallelLister(Builder builder) {
+        if (builder.client == null) {
+            throw new IllegalArgumentException("client must not be null");
+        }
+        this.client = builder.client;
+        this.partitioning = builder.partitioning;
+        this.delimiter = builder.delimiter;
+        this.maxDepth = builder.maxDepth;
+        this.partitions = builder.partitions;
+        this.boundaries = builder.boundaries;
+        this.pageSize = builder.pageSize;
+        this.maxAttempts = builder.maxAttempts;
+        this.ownsPool = builder.pool == null;
+        // 列举任务大部分时间阻塞在请求上，使用独立的池，并行度即同时在途的请求数
+        this.pool = ownsPool ? new ForkJoinPool(builder.concurrency) : builder.pool;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private ObjectClient client;
+        private int concurrency = 16;
+        private Partitioning partitioning = Partitioning.DELIMITER;
+        private String delimiter = "/";
+        private int maxDepth = 2;
+        private int partitions = 64;
+        private List<String> boundaries;
+        private int pageSize = 1000;
+        private int maxAttempts = 3;
+        private ForkJoinPool pool;
+
+        public Builder client(ObjectClient client) {
+            this.client = client;
+            return this;
+        }
+
+        /**
+         * 同时在途的列举请求数
+         */
+        public Builder concurrency(int concurrency) {
+            if (concurrency <= 0) {
+                throw new IllegalArgumentException("concurrency must be positive: " + concurrency);
+            }
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        public Builder partitioning(Partitioning partitioning) {
+            this.partitioning = partitioning;
+            return this;
+        }
+
+        public Builder delimiter(String delimiter) {
+            if (delimiter == null || delimiter.isEmpty()) {
+                throw new IllegalArgumentException("delimiter must not be empty");
+            }
+            this.delimiter = delimiter;
+            return this;
+        }
+
+        /**
+         * DELIMITER 方式下按目录拆分的最大层数，更深的目录整体作为一个分区顺序列举
+         */
+        public Builder maxDepth(int maxDepth) {
+            if (maxDepth < 0) {
+                throw new IllegalArgumentException("maxDepth must not be negative: " + maxDepth);
+            }
+            this.maxDepth = maxDepth;
+            return this;
+        }
+
+        /**
+         * KEY_RANGE 方式下按前缀后首字符均分的区间数，最多为可打印 ASCII 字符数
+         */
+        public Builder partitions(int partitions) {
+            if (partitions <= 0) {
+                throw new IllegalArgumentException("partitions must be positive: " + partitions);
+            }
+            this.partitions = Math.min(partitions, LAST_SPLIT_CHAR - FIRST_SPLIT_CHAR + 1);
+            return this;
+        }
+
+        /**
+         * KEY_RANGE 方式下指定区间边界（完整的 key），代替按首字符均分，
+         * 适合已知 key 分布（如按日期或哈希命名）的情况
+         */
+        public Builder boundaries(List<String> boundaries) {
+            this.boundaries = new ArrayList<>(new TreeSet<>(boundaries));
+            return this;
+        }
+
+        public Builder pageSize(int pageSize) {
+            if (pageSize <= 0 || pageSize > 1000) {
+                throw new IllegalArgumentException("pageSize must be in [1, 1000]: " + pageSize);
+            }
+            this.pageSize = pageSize;
+            return this;
+        }
+
+        public Builder maxAttempts(int maxAttempts) {
+            this.maxAttempts = TransferRetry.checkMaxAttempts(maxAttempts);
+            return this;
+        }
+
+        public Builder pool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        public ParallelLister build() {
+            return new ParallelLister(this);
+        }
+    }
+
+    /**
+     * 并行列举前缀下的所有对象，每个对象调用一次 action，调用顺序不确定且可能在多个线程上同时调用
+     *
+     * @return 列举到的对象数
+     */
+    public long forEach(String bucket, String prefix, Consumer<SufyObject> action) {
+        LongAdder count = new LongAdder();
+        pool.invoke(rootTask(bucket, prefix, object -> {
+            count.increment();
+            action.accept(object);
+        }));
+        return count.sum();
+    }
+
+    /**
+     * 并行列举前缀下的所有对象
+     *
+     * @param sorted 为 true 时按 key 顺序返回，与顺序列举的结果一致
+     */
+    public List<SufyObject> list(String bucket, String prefix, boolean sorted) {
+        if (sorted) {
+            return pool.invoke(rootTask(bucket, prefix, null));
+        }
+        ConcurrentLinkedQueue<SufyObject> objects = new ConcurrentLinkedQueue<>();
+        forEach(bucket, prefix, objects::add);
+        return new ArrayList<>(objects);
+    }
+
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    private RecursiveTask<List<SufyObject>> rootTask(String bucket, String prefix, Consumer<SufyObject> sink) {
+        String root = prefix == null ? "" : prefix;
+        if (partitioning == Partitioning.DELIMITER) {
+            return new PrefixTask(bucket, root, 0, sink);
+        }
+        return new KeyRangeTask(bucket, root, keyRangeBoundaries(root), sink);
+    }
+
+    private List<String> keyRangeBoundaries(String prefix) {
+        if (boundaries != null) {
+            return boundaries;
+        }
+        int span = LAST_SPLIT_CHAR - FIRST_SPLIT_CHAR + 1;
+        TreeSet<String> result = new TreeSet<>();
+        for (int i = 1; i < partitions; i++) {
+            result.add(prefix + (char) (FIRST_SPLIT_CHAR + (long) i * span / partitions));
+        }
+        return new ArrayList<>(result);
+    }
+
+    private ListObjectsV2Response listPage(ListObjectsV2Request request) {
+        return TransferRetry.call(maxAttempts, () -> client.listObjectsV2(request));
+    }
+
+    // sink 为空时收集结果，否则交给 sink 并返回空列表
+    private static void emit(SufyObject object, List<SufyObject> collected, Consumer<SufyObject> sink) {
+        if (sink == null) {
+            collected.add(object);
+        } else {
+            sink.accept(object);
+        }
+    }
+
+    /**
+     * 列举一个前缀：未到最大层数时按分隔符列出直接子对象与子目录，子目录各自作为子任务
+     */
+    private class PrefixTask extends RecursiveTask<List<SufyObject>> {
+        private final String bucket;
+        private final String prefix;
+        private final int depth;
+        private final Consumer<SufyObject> sink;
+
+        PrefixTask(String bucket, String prefix, int depth, Consumer<SufyObject> sink) {
+            this.bucket = bucket;
+            this.prefix = prefix;
+            this.depth = depth;
+            this.sink = sink;
+        }
+
+        @Override
+        protected List<SufyObject> compute() {
+            if (depth >= maxDepth) {
+                return new KeyRangeTask(bucket, prefix, Collections.emptyList(), sink).compute();
+            }
+            List<SufyObject> direct = new ArrayList<>();
+            List<PrefixTask> children = new ArrayList<>();
+            String continuationToken = null;
+            ListObjectsV2Response response;
+            do {
+                response = listPage(ListObjectsV2Request.builder()
+                        .bucket(bucket)
+                        .prefix(prefix)
+                        .delimiter(delimiter)
+                        .maxKeys(pageSize)
+                        .continuationToken(continuationToken)
+                        .build());
+                for (SufyObject object : response.contents()) {
+                    emit(object, direct, sink);
+                }
+                for (CommonPrefix commonPrefix : response.commonPrefixes()) {
+                    PrefixTask child = new PrefixTask(bucket, commonPrefix.prefix(), depth + 1, sink);
+                    // 子目录边发现边提交，不等当前前缀列举完
+                    child.fork();
+                    children.add(child);
+                }
+                continuationToken = response.nextContinuationToken();
+            } while (Boolean.TRUE.equals(response.isTruncated()));
+
+            List<List<SufyObject>> childResults = new ArrayList<>(children.size());
+            for (PrefixTask child : children) {
+                childResults.add(child.join());
+            }
+            return sink == null ? merge(direct, children, childResults) : Collections.emptyList();
+        }
+
+        // 子目录中的 key 都以该子目录前缀开头，直接子对象不含分隔符，按前缀字符串与 key 比较即可确定先后
+        private List<SufyObject> merge(List<SufyObject> direct, List<PrefixTask> children, List<List<SufyObject>> childResults) {
+            int total = direct.size();
+            for (List<SufyObject> childResult : childResults) {
+                total += childResult.size();
+            }
+            List<SufyObject> merged = new ArrayList<>(total);
+            int i = 0;
+            int j = 0;
+            while (i < direct.size() || j < children.size()) {
+                if (j == children.size()
+                        || (i < direct.size() && direct.get(i).key().compareTo(children.get(j).prefix) < 0)) {
+                    merged.add(direct.get(i++));
+                } else {
+                    merged.addAll(childResults.get(j++));
+                }
+            }
+            return merged;
+        }
+    }
+
+    /**
+     * 按区间边界把前缀切成 (b[i], b[i+1]] 的区间并行列举，没有边界时顺序列举整个前缀
+     */
+    private class KeyRangeTask extends RecursiveTask<List<SufyObject>> {
+        private final String bucket;
+        private final String prefix;
+        private final List<String> boundaries;
+        private final Consumer<SufyObject> sink;
+
+        KeyRangeTask(String bucket, String prefix, List<String> boundaries, Consumer<SufyObject> sink) {
+            this.bucket = bucket;
+            this.prefix = prefix;
+            this.boundaries = boundaries;
+            this.sink = sink;
+        }
+
+        @Override
+        protected List<SufyObject> compute() {
+            if (boundaries.isEmpty()) {
+                return listRange(null, null);
+            }
+            List<RangeTask> ranges = new ArrayList<>(boundaries.size() + 1);
+            String lower = null;
+            for (String upper : boundaries) {
+                ranges.add(new RangeTask(lower, upper));
+                lower = upper;
+            }
+            ranges.add(new RangeTask(lower, null));
+            ForkJoinTask.invokeAll(ranges);
+            if (sink != null) {
+                return Collections.emptyList();
+            }
+            List<SufyObject> merged = new ArrayList<>();
+            for (RangeTask range : ranges) {
+                merged.addAll(range.join());
+            }
+            return merged;
+        }
+
+        /**
+         * 列举 (startAfter, lastKey] 内的 key，边界为空时不限
+         */
+        private List<SufyObject> listRange(String startAfter, String lastKey) {
+            List<SufyObject> collected = new ArrayList<>();
+            String continuationToken = null;
+            ListObjectsV2Response response;
+            do {
+                response = listPage(ListObjectsV2Request.builder()
+                        .bucket(bucket)
+                        .prefix(prefix)
+                        .startAfter(continuationToken == null ? startAfter : null)
+                        .maxKeys(pageSize)
+                        .continuationToken(continuationToken)
+                        .build());
+                for (SufyObject object : response.contents()) {
+                    if (lastKey != null && object.key().compareTo(lastKey) > 0) {
+                        return collected;
+                    }
+                    emit(object, collected, sink);
+                }
+                continuationToken = response.nextContinuationToken();
+            } while (Boolean.TRUE.equals(response.isTruncated()));
+            return collected;
+        }
+
+        private class RangeTask extends RecursiveTask<List<SufyObject>> {
+            private final String startAfter;
+            private final String lastKey;
+
+            RangeTask(String startAfter, String lastKey) {
+                this.startAfter = startAfter;
+                this.lastKey = lastKey;
+            }
+
+            @Override
+            protected List<SufyObject> compute() {
+                return listRange(startAfter, lastKey);
+            }
+        }
+    }
+}
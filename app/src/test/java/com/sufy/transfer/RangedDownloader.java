@@ -0,0 +1,230 @@
+package com.sufy.transfer;
+
+import com.sufy.sdk.services.object.ObjectClient;
+import com.sufy.sdk.services.object.model.GetObjectRequest;
+import com.sufy.sdk.services.object.model.GetObjectResponse;
+import com.sufy.sdk.services.object.model.HeadObjectRequest;
+import com.sufy.sdk.services.object.model.HeadObjectResponse;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * 并发分段下载：先 headObject 获取大小与 ETag，再按 Range 并发 getObject，
+ * 每段直接写入目标文件对应偏移处。
+ * <p>
+ * 每个在途分段只占用一个固定大小的拷贝缓冲区，堆内存与对象大小无关。
+ * 所有分段请求都带 If-Match，下载过程中对象被覆盖会失败而不是拼出混合内容。
+ * 数据先写入同目录下的临时文件，全部完成后再替换目标文件。
+ */
+public class RangedDownloader implements AutoCloseable {
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final ObjectClient client;
+    private final int concurrency;
+    private final long partSize;
+    private final int maxAttempts;
+    private final TransferExecutor executor;
+    private final ThreadLocal<ByteBuffer> copyBuffers = ThreadLocal.withInitial(() -> ByteBuffer.allocate(COPY_BUFFER_SIZE));
+
+    private RangedDownloader(Builder builder) {
+        if (builder.client == null) {
+            throw new IllegalArgumentException("client must not be null");
+        }
+        this.client = builder.client;
+        this.concurrency = builder.concurrency;
+        this.partSize = builder.partSize;
+        this.maxAttempts = builder.maxAttempts;
+        this.executor = TransferExecutor.of(builder.executor, concurrency);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private ObjectClient client;
+        private int concurrency = 8;
+        private long partSize = 8L * 1024 * 1024;
+        private int maxAttempts = 3;
+        private ExecutorService executor;
+
+        public Builder client(ObjectClient client) {
+            this.client = client;
+            return this;
+        }
+
+        /**
+         * 同时下载的分段数
+         */
+        public Builder concurrency(int concurrency) {
+            if (concurrency <= 0) {
+                throw new IllegalArgumentException("concurrency must be positive: " + concurrency);
+            }
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        /**
+         * 每个 Range 请求的字节数
+         */
+        public Builder partSize(long partSize) {
+            if (partSize <= 0) {
+                throw new IllegalArgumentException("partSize must be positive: " + partSize);
+            }
+            this.partSize = partSize;
+            return this;
+        }
+
+        /**
+         * 单个分段的最大尝试次数（含首次），重试时整段重新下载
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            this.maxAttempts = TransferRetry.checkMaxAttempts(maxAttempts);
+            return this;
+        }
+
+        /**
+         * 使用调用方提供的线程池，不设置时按 concurrency 新建；调用方的线程池不会随 close 关闭
+         */
+        public Builder executor(ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public RangedDownloader build() {
+            return new RangedDownloader(this);
+        }
+    }
+
+    /**
+     * 下载对象到 target，返回下载开始时 headObject 的结果
+     */
+    public HeadObjectResponse download(String bucket, String key, Path target) {
+        HeadObjectResponse head = client.headObject(HeadObjectRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .build()
+        );
+        long size = head.contentLength();
+        String eTag = head.eTag();
+        Path temp = target.resolveSibling(target.getFileName() + ".download");
+
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (long offset = 0; offset < size; offset += partSize) {
+                    final long start = offset;
+                    final long end = Math.min(size, offset + partSize) - 1;
+                    futures.add(executor.submit(() -> {
+                        TransferRetry.call(maxAttempts, () -> downloadRange(bucket, key, eTag, start, end, channel));
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    await(future);
+                }
+                channel.force(false);
+            }
+            move(temp, target);
+            return head;
+        } catch (IOException | RuntimeException | InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            deleteQuietly(temp);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+            throw SdkClientException.create("Ranged download failed: " + key, e);
+        }
+    }
+
+    private Long downloadRange(String bucket, String key, String eTag, long start, long end, FileChannel channel) {
+        GetObjectRequest request = GetObjectRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .range(String.format("bytes=%d-%d", start, end))
+                .ifMatch(eTag)
+                .build();
+        ByteBuffer buffer = copyBuffers.get();
+        long position = start;
+        try (ResponseInputStream<GetObjectResponse> ris = client.getObject(request)) {
+            if (eTag != null && !eTag.equals(ris.response().eTag())) {
+                throw SdkClientException.create("ETag changed during download: " + eTag + " -> " + ris.response().eTag());
+            }
+            int n;
+            while ((n = ris.read(buffer.array(), 0, buffer.capacity())) >= 0) {
+                buffer.clear().limit(n);
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+            }
+        } catch (IOException e) {
+            throw SdkClientException.create("Failed to download range " + start + "-" + end + " of " + key, e);
+        }
+        if (position != end + 1) {
+            throw SdkClientException.create("Short read for range " + start + "-" + end + " of " + key + ": " + (position - start));
+        }
+        return position - start;
+    }
+
+    private static void await(Future<?> future) throws InterruptedException {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SdkException) {
+                throw (SdkException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw SdkClientException.create("Range download failed", cause);
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public long getPartSize() {
+        return partSize;
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
@@ -0,0 +1,50 @@
+package com.sufy.transfer;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 传输引擎共用的线程池：调用方通过 Builder 传入的线程池只借用，未传入时新建固定大小的线程池并在 close 时关闭
+ */
+final class TransferExecutor implements AutoCloseable {
+    private final ExecutorService executor;
+    private final boolean owned;
+
+    private TransferExecutor(ExecutorService executor, boolean owned) {
+        this.executor = executor;
+        this.owned = owned;
+    }
+
+    /**
+     * @param external 调用方提供的线程池，为 null 时新建 threads 个线程的线程池
+     */
+    static TransferExecutor of(ExecutorService external, int threads) {
+        return external != null
+                ? new TransferExecutor(external, false)
+                : new TransferExecutor(Executors.newFixedThreadPool(threads), true);
+    }
+
+    <T> Future<T> submit(Callable<T> task) {
+        return executor.submit(task);
+    }
+
+    Future<?> submit(Runnable task) {
+        return executor.submit(task);
+    }
+
+    void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    /**
+     * 只关闭自己创建的线程池，正在执行的任务会被中断
+     */
+    @Override
+    public void close() {
+        if (owned) {
+            executor.shutdownNow();
+        }
+    }
+}
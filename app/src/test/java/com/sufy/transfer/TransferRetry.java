@@ -0,0 +1,65 @@
+package com.sufy.transfer;
+
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+
+import java.util.function.Supplier;
+
+/**
+ * 传输引擎共用的单请求重试：客户端网络异常、限流与 5xx 时按指数退避重试
+ */
+final class TransferRetry {
+    private static final long BASE_DELAY_MILLIS = 100;
+    private static final long MAX_DELAY_MILLIS = 5000;
+
+    private TransferRetry() {
+    }
+
+    /**
+     * 各引擎 Builder 共用的 maxAttempts 校验，次数包含首次请求，必须为正数
+     */
+    static int checkMaxAttempts(int maxAttempts) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("maxAttempts must be positive: " + maxAttempts);
+        }
+        return maxAttempts;
+    }
+
+    static <T> T call(int maxAttempts, Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (SdkException e) {
+                if (attempt >= maxAttempts || !isRetryable(e)) {
+                    throw e;
+                }
+                backoff(attempt);
+            }
+        }
+    }
+
+    /**
+     * 第 attempt 次失败后的退避等待，供需要自行判断重试条件的调用方使用
+     */
+    static void backoff(int attempt) {
+        sleep(Math.min(MAX_DELAY_MILLIS, BASE_DELAY_MILLIS << Math.min(attempt - 1, 16)));
+    }
+
+    static boolean isRetryable(SdkException e) {
+        if (e instanceof SdkServiceException) {
+            SdkServiceException se = (SdkServiceException) e;
+            return se.statusCode() >= 500 || se.isThrottlingException();
+        }
+        return e instanceof SdkClientException;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw SdkClientException.create("Interrupted while waiting to retry", e);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.sufy.transfer;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONException;
+import com.alibaba.fastjson.JSONObject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 可续传分片上传的本地进度文件，每行一个 JSON：第一行为上传任务与源文件信息，之后每完成一个分片追加一行。
+ * <p>
+ * 每次追加后都会落盘，进程在任意时刻退出最多丢失正在写入的最后一行，打开时截掉不完整的末行；
+ * 丢失记录的分片在续传时通过 listParts 对账找回。
+ */
+public class UploadJournal implements Closeable {
+    private final Path path;
+    private final FileChannel channel;
+    private final Header header;
+    private final Map<Integer, PartRecord> parts;
+
+    public static class Header {
+        public final String bucket;
+        public final String key;
+        public final String uploadId;
+        public final long fileSize;
+        // 源文件修改时间（毫秒），与大小一起判断文件是否变化
+        public final long lastModified;
+        public final long partSize;
+
+        public Header(String bucket, String key, String uploadId, long fileSize, long lastModified, long partSize) {
+            this.bucket = bucket;
+            this.key = key;
+            this.uploadId = uploadId;
+            this.fileSize = fileSize;
+            this.lastModified = lastModified;
+            this.partSize = partSize;
+        }
+    }
+
+    public static class PartRecord {
+        public final int partNumber;
+        public final String eTag;
+        public final long size;
+        public final long crc32c;
+
+        public PartRecord(int partNumber, String eTag, long size, long crc32c) {
+            this.partNumber = partNumber;
+            this.eTag = eTag;
+            this.size = size;
+            this.crc32c = crc32c;
+        }
+    }
+
+    private UploadJournal(Path path, FileChannel channel, Header header, Map<Integer, PartRecord> parts) {
+        this.path = path;
+        this.channel = channel;
+        this.header = header;
+        this.parts = parts;
+    }
+
+    /**
+     * 新建进度文件，已存在时覆盖
+     */
+    public static UploadJournal create(Path path, Header header) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        UploadJournal journal = new UploadJournal(path, channel, header, new TreeMap<>());
+        JSONObject json = new JSONObject();
+        json.put("bucket", header.bucket);
+        json.put("key", header.key);
+        json.put("uploadId", header.uploadId);
+        json.put("fileSize", header.fileSize);
+        json.put("lastModified", header.lastModified);
+        json.put("partSize", header.partSize);
+        journal.writeLine(json);
+        return journal;
+    }
+
+    /**
+     * 打开已有的进度文件，之后追加的记录写在末尾
+     *
+     * @throws IOException 文件不存在、第一行无法解析或分片大小不是正数
+     */
+    public static UploadJournal open(Path path) throws IOException {
+        byte[] content = Files.readAllBytes(path);
+        // 写入中途退出会留下没有换行的末行，截掉后再追加，避免新记录接在残行后面
+        int length = content.length;
+        while (length > 0 && content[length - 1] != '\n') {
+            length--;
+        }
+        String[] lines = new String(content, 0, length, StandardCharsets.UTF_8).split("\n");
+        JSONObject first = parseLine(lines[0]);
+        if (first == null) {
+            throw new IOException("Corrupted upload journal header: " + path);
+        }
+        Header header = new Header(first.getString("bucket"), first.getString("key"), first.getString("uploadId"),
+                first.getLongValue("fileSize"), first.getLongValue("lastModified"), first.getLongValue("partSize"));
+        if (header.partSize <= 0) {
+            throw new IOException("Invalid part size in upload journal header: " + path);
+        }
+        Map<Integer, PartRecord> parts = new TreeMap<>();
+        for (int i = 1; i < lines.length; i++) {
+            JSONObject json = parseLine(lines[i]);
+            if (json == null) {
+                continue;
+            }
+            PartRecord part = new PartRecord(json.getIntValue("partNumber"), json.getString("eTag"),
+                    json.getLongValue("size"), json.getLongValue("crc32c"));
+            parts.put(part.partNumber, part);
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE);
+        channel.truncate(length);
+        channel.position(length);
+        return new UploadJournal(path, channel, header, parts);
+    }
+
+    private static JSONObject parseLine(String line) {
+        try {
+            return JSON.parseObject(line);
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    public Header header() {
+        return header;
+    }
+
+    /**
+     * 已记录的分片，按分片号排序
+     */
+    public synchronized Map<Integer, PartRecord> parts() {
+        return Collections.unmodifiableMap(new TreeMap<>(parts));
+    }
+
+    public synchronized void append(PartRecord part) throws IOException {
+        JSONObject json = new JSONObject();
+        json.put("partNumber", part.partNumber);
+        json.put("eTag", part.eTag);
+        json.put("size", part.size);
+        json.put("crc32c", part.crc32c);
+        writeLine(json);
+        parts.put(part.partNumber, part);
+    }
+
+    /**
+     * 上传完成后删除进度文件
+     */
+    public void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void writeLine(JSONObject json) throws IOException {
+        ByteBuffer line = ByteBuffer.wrap((json.toJSONString() + "\n").getBytes(StandardCharsets.UTF_8));
+        while (line.hasRemaining()) {
+            channel.write(line);
+        }
+        channel.force(false);
+    }
+}
@@ -0,0 +1,136 @@
+package com.sufy.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * 响应体摘要：长度、CRC32C、MD5 以及前 N 个字节。
+ * <p>
+ * 由 {@link #wrap(InputStream)} 返回的流在调用方读取时增量计算，不会复制或持有完整的响应体；
+ * 调用方 skip 的字节同样会被读出并计入摘要。
+ * MD5 只有在流被读到末尾后才有值。
+ */
+public class BodyDigest {
+    private final CRC32C crc32c = new CRC32C();
+    private final MessageDigest md5;
+    private final byte[] head;
+    private volatile int headLength;
+    private volatile long length;
+    private volatile byte[] md5Result;
+    private volatile boolean complete;
+
+    public BodyDigest(int headBytes) {
+        this.head = new byte[headBytes];
+        try {
+            this.md5 = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public InputStream wrap(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b < 0) {
+                    finish();
+                } else {
+                    update((byte) b);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n < 0) {
+                    finish();
+                } else {
+                    update(b, off, n);
+                }
+                return n;
+            }
+
+            // 跳过的字节也要计入摘要，这里读出后丢弃，而不是交给底层流直接跳过
+            @Override
+            public long skip(long n) throws IOException {
+                if (n <= 0) {
+                    return 0;
+                }
+                byte[] buffer = new byte[(int) Math.min(n, 8192)];
+                long skipped = 0;
+                while (skipped < n) {
+                    int read = read(buffer, 0, (int) Math.min(n - skipped, buffer.length));
+                    if (read < 0) {
+                        break;
+                    }
+                    skipped += read;
+                }
+                return skipped;
+            }
+        };
+    }
+
+    private synchronized void update(byte[] b, int off, int len) {
+        crc32c.update(b, off, len);
+        md5.update(b, off, len);
+        if (headLength < head.length) {
+            int n = Math.min(len, head.length - headLength);
+            System.arraycopy(b, off, head, headLength, n);
+            headLength += n;
+        }
+        length += len;
+    }
+
+    private synchronized void update(byte b) {
+        crc32c.update(b);
+        md5.update(b);
+        if (headLength < head.length) {
+            head[headLength++] = b;
+        }
+        length++;
+    }
+
+    private synchronized void finish() {
+        if (!complete) {
+            md5Result = md5.digest();
+            complete = true;
+        }
+    }
+
+    /**
+     * 已读取的字节数
+     */
+    public long length() {
+        return length;
+    }
+
+    public synchronized long crc32c() {
+        return crc32c.getValue();
+    }
+
+    /**
+     * 响应体完整读取后的 MD5，未读完时返回 null
+     */
+    public byte[] md5() {
+        byte[] result = md5Result;
+        return result == null ? null : result.clone();
+    }
+
+    public byte[] head() {
+        return Arrays.copyOf(head, headLength);
+    }
+
+    /**
+     * 响应体是否已被读到末尾
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+}
@@ -0,0 +1,31 @@
+package com.sufy.util;
+
+import java.io.IOException;
+
+/**
+ * 数据的长度或校验和与期望值不一致，由 {@link ChecksumVerifier} 在读写过程中抛出
+ */
+public class ChecksumMismatchException extends IOException {
+    private final String checksum;
+    private final String expected;
+    private final String actual;
+
+    public ChecksumMismatchException(String checksum, Object expected, Object actual) {
+        super(String.format("%s mismatch: expected %s, actual %s", checksum, expected, actual));
+        this.checksum = checksum;
+        this.expected = String.valueOf(expected);
+        this.actual = String.valueOf(actual);
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public String getExpected() {
+        return expected;
+    }
+
+    public String getActual() {
+        return actual;
+    }
+}
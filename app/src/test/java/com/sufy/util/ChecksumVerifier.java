@@ -0,0 +1,263 @@
+package com.sufy.util;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.zip.CRC32C;
+
+/**
+ * 单次遍历、常量内存的完整性校验：数据流经 {@link #wrap(InputStream)} 或 {@link #wrap(OutputStream)} 时
+ * 增量计算 MD5 / CRC32C / CRC64NVME，读到末尾（或输出流关闭）时与期望值比较，不一致时抛出
+ * {@link ChecksumMismatchException}。
+ * <p>
+ * 设置了期望长度时，数据超出期望长度会在当次读写立即失败，不必等到末尾。
+ * ETag 为 32 位十六进制时按 MD5 校验；形如 md5-N 的分片上传 ETag 需要提供分片大小，
+ * 按每个分片的 MD5 拼接后再取 MD5 校验；其他格式的 ETag 无法由内容推出，设置时直接抛出异常，
+ * 需要兼容这类 ETag 的调用方先用 {@link #canVerifyETag(String, long)} 判断。
+ */
+public class ChecksumVerifier {
+    private final MessageDigest md5 = newMd5();
+    private final CRC32C crc32c = new CRC32C();
+    private final Crc64 crc64 = new Crc64();
+    // 分片 ETag 校验：当前分片的 MD5 与已完成分片 MD5 的拼接摘要
+    private MessageDigest partMd5;
+    private MessageDigest partsMd5;
+    private long partSize;
+    private long partFilled;
+    private int parts;
+
+    private long expectedLength = -1;
+    private byte[] expectedMd5;
+    private String expectedMultipartETag;
+    private Long expectedCrc32c;
+    private Long expectedCrc64;
+
+    private long length;
+    private boolean verified;
+
+    public ChecksumVerifier expectLength(long length) {
+        this.expectedLength = length;
+        return this;
+    }
+
+    public ChecksumVerifier expectMd5(byte[] md5) {
+        this.expectedMd5 = md5.clone();
+        return this;
+    }
+
+    /**
+     * 按 ETag 校验，分片上传的 ETag 需要使用 {@link #expectETag(String, long)}
+     *
+     * @throws IllegalArgumentException ETag 不是 MD5
+     */
+    public ChecksumVerifier expectETag(String eTag) {
+        return expectETag(eTag, 0);
+    }
+
+    /**
+     * @param partSize 分片上传时除最后一个分片外的分片大小
+     * @throws IllegalArgumentException ETag 无法由内容推出，见 {@link #canVerifyETag(String, long)}
+     */
+    public ChecksumVerifier expectETag(String eTag, long partSize) {
+        String value = unquote(eTag);
+        if (value.matches("[0-9a-fA-F]{32}")) {
+            expectedMd5 = HexFormat.of().parseHex(value);
+        } else if (partSize > 0 && value.matches("[0-9a-fA-F]{32}-\\d+")) {
+            expectedMultipartETag = value.toLowerCase();
+            this.partSize = partSize;
+            this.partMd5 = newMd5();
+            this.partsMd5 = newMd5();
+        } else {
+            throw new IllegalArgumentException("ETag cannot be verified from content: " + eTag);
+        }
+        return this;
+    }
+
+    /**
+     * ETag 是否能由内容推出：单个 MD5，或提供了分片大小的 md5-N
+     */
+    public static boolean canVerifyETag(String eTag, long partSize) {
+        String value = unquote(eTag);
+        return value.matches("[0-9a-fA-F]{32}") || partSize > 0 && value.matches("[0-9a-fA-F]{32}-\\d+");
+    }
+
+    public ChecksumVerifier expectCrc32c(long crc32c) {
+        this.expectedCrc32c = crc32c;
+        return this;
+    }
+
+    /**
+     * @param base64 服务端返回的大端序 base64 编码校验和，如 x-amz-checksum-crc32c 格式
+     */
+    public ChecksumVerifier expectCrc32c(String base64) {
+        return expectCrc32c(ByteBuffer.wrap(Base64.getDecoder().decode(base64)).getInt() & 0xffffffffL);
+    }
+
+    public ChecksumVerifier expectCrc64(long crc64) {
+        this.expectedCrc64 = crc64;
+        return this;
+    }
+
+    public ChecksumVerifier expectCrc64(String base64) {
+        return expectCrc64(ByteBuffer.wrap(Base64.getDecoder().decode(base64)).getLong());
+    }
+
+    public InputStream wrap(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b < 0) {
+                    verify();
+                } else {
+                    update(new byte[]{(byte) b}, 0, 1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n < 0) {
+                    verify();
+                } else {
+                    update(b, off, n);
+                }
+                return n;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                throw new IOException("skip is not supported while verifying checksums");
+            }
+
+            @Override
+            public boolean markSupported() {
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 写入的数据参与校验，关闭时校验
+     */
+    public OutputStream wrap(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                update(b, off, len);
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    flush();
+                    verify();
+                } finally {
+                    out.close();
+                }
+            }
+        };
+    }
+
+    public synchronized void update(byte[] b, int off, int len) throws ChecksumMismatchException {
+        length += len;
+        if (expectedLength >= 0 && length > expectedLength) {
+            throw new ChecksumMismatchException("length", expectedLength, "at least " + length);
+        }
+        md5.update(b, off, len);
+        crc32c.update(b, off, len);
+        crc64.update(b, off, len);
+        if (partMd5 != null) {
+            int i = off;
+            int end = off + len;
+            while (i < end) {
+                int n = (int) Math.min(end - i, partSize - partFilled);
+                partMd5.update(b, i, n);
+                partFilled += n;
+                i += n;
+                if (partFilled == partSize) {
+                    finishPart();
+                }
+            }
+        }
+    }
+
+    private void finishPart() {
+        partsMd5.update(partMd5.digest());
+        parts++;
+        partFilled = 0;
+    }
+
+    /**
+     * 比较所有已设置的期望值，重复调用只校验一次
+     */
+    public synchronized void verify() throws ChecksumMismatchException {
+        if (verified) {
+            return;
+        }
+        verified = true;
+        if (expectedLength >= 0 && length != expectedLength) {
+            throw new ChecksumMismatchException("length", expectedLength, length);
+        }
+        if (expectedCrc32c != null && expectedCrc32c != crc32c.getValue()) {
+            throw new ChecksumMismatchException("crc32c", Long.toHexString(expectedCrc32c), Long.toHexString(crc32c.getValue()));
+        }
+        if (expectedCrc64 != null && expectedCrc64 != crc64.getValue()) {
+            throw new ChecksumMismatchException("crc64", Long.toHexString(expectedCrc64), Long.toHexString(crc64.getValue()));
+        }
+        byte[] actualMd5 = md5.digest();
+        if (expectedMd5 != null && !MessageDigest.isEqual(expectedMd5, actualMd5)) {
+            throw new ChecksumMismatchException("md5", HexFormat.of().formatHex(expectedMd5), HexFormat.of().formatHex(actualMd5));
+        }
+        if (expectedMultipartETag != null) {
+            if (partFilled > 0 || parts == 0) {
+                finishPart();
+            }
+            String actual = HexFormat.of().formatHex(partsMd5.digest()) + "-" + parts;
+            if (!expectedMultipartETag.equals(actual)) {
+                throw new ChecksumMismatchException("etag", expectedMultipartETag, actual);
+            }
+        }
+    }
+
+    public synchronized long length() {
+        return length;
+    }
+
+    public synchronized long crc32c() {
+        return crc32c.getValue();
+    }
+
+    public synchronized long crc64() {
+        return crc64.getValue();
+    }
+
+    private static String unquote(String eTag) {
+        if (eTag != null && eTag.length() >= 2 && eTag.startsWith("\"") && eTag.endsWith("\"")) {
+            return eTag.substring(1, eTag.length() - 1);
+        }
+        return eTag == null ? "" : eTag;
+    }
+
+    private static MessageDigest newMd5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.sufy.util;
+
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.ContentStreamProvider;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 以文件或文件中的一段作为请求体，长度在创建时确定，数据不进入堆内存。
+ * <p>
+ * 同步 http client 只接受 InputStream 形式的请求体，无法直接 transferTo 到 socket；
+ * 这里用 FileChannel 的定位读把数据直接读进 http client 传入的缓冲区，没有中间缓冲区，
+ * 与 mmap 后再 get 到缓冲区的拷贝次数相同，且不需要管理映射的生命周期。
+ * 每次 newStream() 都重新打开文件并从起点读取，SDK 重试时可以重复读。
+ */
+public final class FileRequestBody {
+    public static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    private FileRequestBody() {
+    }
+
+    public static RequestBody fromFile(Path file) {
+        try {
+            return fromFile(file, 0, Files.size(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static RequestBody fromFile(Path file, long offset, long length) {
+        return fromFile(file, offset, length, DEFAULT_CONTENT_TYPE);
+    }
+
+    /**
+     * 文件中 [offset, offset + length) 这一段作为请求体，用于分片上传时不必先把分片读入内存
+     */
+    public static RequestBody fromFile(Path file, long offset, long length, String contentType) {
+        return RequestBody.fromContentProvider(contentProvider(file, offset, length), length, contentType);
+    }
+
+    public static ContentStreamProvider contentProvider(Path file, long offset, long length) {
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException("Invalid file range: offset=" + offset + ", length=" + length);
+        }
+        return () -> {
+            try {
+                return new FileSliceInputStream(FileChannel.open(file, StandardOpenOption.READ), offset, length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    private static class FileSliceInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+
+        FileSliceInputStream(FileChannel channel, long offset, long length) {
+            this.channel = channel;
+            this.position = offset;
+            this.end = offset + length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int n = read(b, 0, 1);
+            return n < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            long remaining = end - position;
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, remaining)), position);
+            if (n < 0) {
+                // 文件在上传过程中被截断，继续发送会导致实际长度与 Content-Length 不一致
+                throw new IOException("File truncated at " + position + ", expected " + end + " bytes");
+            }
+            position += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, end - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(0, end - position));
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
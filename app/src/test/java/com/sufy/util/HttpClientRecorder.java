@@ -1,53 +1,145 @@
 package com.sufy.util;
 
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.http.ContentStreamProvider;
 import software.amazon.awssdk.http.ExecutableHttpRequest;
 import software.amazon.awssdk.http.HttpExecuteRequest;
 import software.amazon.awssdk.http.HttpExecuteResponse;
 import software.amazon.awssdk.http.SdkHttpClient;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.InputStream;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class HttpClientRecorder implements SdkHttpClient {
+    public static final int DEFAULT_CAPACITY = 4096;
+    public static final int DEFAULT_DIGEST_HEAD_BYTES = 256;
+
+    public enum CaptureMode {
+        // 保留完整的响应对象，响应体由测试自行读取
+        FULL,
+        // 只保留响应头与响应体摘要，响应体在调用方读取时增量计算，不占用额外内存
+        DIGEST
+    }
+
     private final SdkHttpClient httpClient;
-    private List<HttpRecord> records;
+    private final int capacity;
+    private final RecordBuffer.OverflowPolicy overflowPolicy;
+    // 为 null 时不统计耗时
+    private final RequestMetrics metrics;
+    // 并发的 call() 会同时写入，开始/结束录制时整体替换
+    private volatile RecordBuffer<HttpRecord> records;
+    private volatile CaptureMode captureMode = CaptureMode.FULL;
+    private volatile int digestHeadBytes = DEFAULT_DIGEST_HEAD_BYTES;
 
     public static class HttpRecord {
         public HttpExecuteRequest request;
         public HttpExecuteResponse response;
+        // System.nanoTime()，用于按请求开始时间排序
+        public long startTime;
+        // 仅 DIGEST 模式下有值，此时 response 中不含响应体
+        public BodyDigest bodyDigest;
     }
 
     public HttpClientRecorder(SdkHttpClient httpClient) {
+        this(httpClient, null);
+    }
+
+    public HttpClientRecorder(SdkHttpClient httpClient, RequestMetrics metrics) {
+        this(httpClient, DEFAULT_CAPACITY, RecordBuffer.OverflowPolicy.DROP_OLDEST, metrics);
+    }
+
+    public HttpClientRecorder(SdkHttpClient httpClient, int capacity, RecordBuffer.OverflowPolicy overflowPolicy) {
+        this(httpClient, capacity, overflowPolicy, null);
+    }
+
+    public HttpClientRecorder(SdkHttpClient httpClient, int capacity, RecordBuffer.OverflowPolicy overflowPolicy,
+                              RequestMetrics metrics) {
         this.httpClient = httpClient;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.metrics = metrics;
         this.records = null;
     }
 
+    public RequestMetrics getMetrics() {
+        return metrics;
+    }
+
     public void startRecording() {
-        this.records = new ArrayList<>();
+        startRecording(CaptureMode.FULL);
+    }
+
+    public void startRecording(CaptureMode captureMode) {
+        startRecording(captureMode, DEFAULT_DIGEST_HEAD_BYTES);
+    }
+
+    /**
+     * @param digestHeadBytes DIGEST 模式下保留的响应体前缀字节数
+     */
+    public void startRecording(CaptureMode captureMode, int digestHeadBytes) {
+        this.captureMode = captureMode;
+        this.digestHeadBytes = digestHeadBytes;
+        this.records = new RecordBuffer<>(capacity, overflowPolicy);
     }
 
+    /**
+     * 结束录制，返回按请求开始时间排序的记录
+     */
     public List<HttpRecord> stopAndGetRecords() {
-        List<HttpRecord> result = Collections.unmodifiableList(this.records);
+        RecordBuffer<HttpRecord> buffer = this.records;
         records = null;
-        return result;
+        return Collections.unmodifiableList(buffer.snapshot(Comparator.comparingLong(r -> r.startTime)));
+    }
+
+    /**
+     * 丢弃未结束的录制并恢复默认录制模式，共享客户端时在每个测试开始前调用
+     */
+    public void reset() {
+        records = null;
+        captureMode = CaptureMode.FULL;
+        digestHeadBytes = DEFAULT_DIGEST_HEAD_BYTES;
     }
 
 
     @Override
     public ExecutableHttpRequest prepareRequest(HttpExecuteRequest request) {
-        ExecutableHttpRequest ehr = httpClient.prepareRequest(request);
+        RequestTimer timer = metrics == null
+                ? null
+                : new RequestTimer(metrics, metrics.operationName(request.httpRequest()));
+        ExecutableHttpRequest ehr = httpClient.prepareRequest(timer == null ? request : timer.instrument(request));
 
         return new ExecutableHttpRequest() {
             @Override
             public HttpExecuteResponse call() throws IOException {
-                HttpExecuteResponse response = ehr.call();
-                if (records != null) {
+                long startTime = System.nanoTime();
+                HttpExecuteResponse response;
+                if (timer == null) {
+                    response = ehr.call();
+                } else {
+                    timer.start(startTime);
+                    try {
+                        response = timer.firstByte(ehr.call());
+                    } catch (IOException | RuntimeException e) {
+                        timer.fail();
+                        throw e;
+                    }
+                }
+                RecordBuffer<HttpRecord> buffer = records;
+                if (buffer != null) {
                     HttpRecord record = new HttpRecord();
                     record.request = request;
                     record.response = response;
-                    records.add(record);
+                    record.startTime = startTime;
+                    if (captureMode == CaptureMode.DIGEST) {
+                        response = digest(record, response);
+                    }
+                    buffer.add(record);
                 }
                 return response;
             }
@@ -59,6 +151,152 @@ public class HttpClientRecorder implements SdkHttpClient {
         };
     }
 
+    // 记录中只保留响应头，返回给调用方的响应体换成边读边计算摘要的流
+    private HttpExecuteResponse digest(HttpRecord record, HttpExecuteResponse response) {
+        record.response = HttpExecuteResponse.builder()
+                .response(response.httpResponse())
+                .build();
+        if (response.responseBody().isEmpty()) {
+            return response;
+        }
+        AbortableInputStream body = response.responseBody().get();
+        record.bodyDigest = new BodyDigest(digestHeadBytes);
+        return HttpExecuteResponse.builder()
+                .response(response.httpResponse())
+                .responseBody(AbortableInputStream.create(record.bodyDigest.wrap(body), body))
+                .build();
+    }
+
+    /**
+     * 单个请求的计时：请求体读完视为发送完成，call() 返回视为收到首字节，响应体读完或关闭视为传输结束
+     */
+    private static class RequestTimer {
+        private final RequestMetrics metrics;
+        private final String operation;
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private final AtomicLong bytesSent = new AtomicLong();
+        private final AtomicLong bytesReceived = new AtomicLong();
+        private volatile long startTime;
+        private volatile long sentTime = -1;
+        private volatile long firstByteTime;
+
+        RequestTimer(RequestMetrics metrics, String operation) {
+            this.metrics = metrics;
+            this.operation = operation;
+        }
+
+        HttpExecuteRequest instrument(HttpExecuteRequest request) {
+            if (request.contentStreamProvider().isEmpty()) {
+                return request;
+            }
+            ContentStreamProvider provider = request.contentStreamProvider().get();
+            // 已知长度的请求体由 http client 读满 Content-Length 后就停止，不会读到 EOF，读满时即视为发送完成
+            long contentLength = request.httpRequest().firstMatchingHeader("Content-Length")
+                    .map(Long::parseLong)
+                    .orElse(-1L);
+            return HttpExecuteRequest.builder()
+                    .request(request.httpRequest())
+                    .contentStreamProvider(() -> {
+                        // 重试时会重新打开请求体，按最后一次计数
+                        bytesSent.set(0);
+                        sentTime = -1;
+                        return new FilterInputStream(provider.newStream()) {
+                            @Override
+                            public int read() throws IOException {
+                                int b = super.read();
+                                sent(b < 0 ? -1 : 1);
+                                return b;
+                            }
+
+                            @Override
+                            public int read(byte[] b, int off, int len) throws IOException {
+                                int n = super.read(b, off, len);
+                                sent(n);
+                                return n;
+                            }
+
+                            private void sent(int n) {
+                                if (n < 0) {
+                                    if (sentTime < 0) {
+                                        sentTime = System.nanoTime();
+                                    }
+                                    return;
+                                }
+                                long total = bytesSent.addAndGet(n);
+                                if (contentLength >= 0 && total >= contentLength && sentTime < 0) {
+                                    sentTime = System.nanoTime();
+                                }
+                            }
+                        };
+                    })
+                    .build();
+        }
+
+        void start(long startTime) {
+            this.startTime = startTime;
+        }
+
+        HttpExecuteResponse firstByte(HttpExecuteResponse response) {
+            firstByteTime = System.nanoTime();
+            if (response.responseBody().isEmpty()) {
+                finish();
+                return response;
+            }
+            AbortableInputStream body = response.responseBody().get();
+            InputStream counting = new FilterInputStream(body) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b < 0) {
+                        finish();
+                    } else {
+                        bytesReceived.incrementAndGet();
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int n = super.read(b, off, len);
+                    if (n < 0) {
+                        finish();
+                    } else {
+                        bytesReceived.addAndGet(n);
+                    }
+                    return n;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    finish();
+                    super.close();
+                }
+            };
+            return HttpExecuteResponse.builder()
+                    .response(response.httpResponse())
+                    .responseBody(AbortableInputStream.create(counting, body))
+                    .build();
+        }
+
+        void fail() {
+            if (finished.compareAndSet(false, true)) {
+                metrics.recordError(operation);
+            }
+        }
+
+        private void finish() {
+            if (finished.compareAndSet(false, true)) {
+                long end = System.nanoTime();
+                long sent = sentTime;
+                metrics.record(operation,
+                        sent < 0 ? -1 : Math.max(0, sent - startTime),
+                        firstByteTime - startTime,
+                        end - startTime,
+                        bytesSent.get(),
+                        bytesReceived.get());
+            }
+        }
+    }
 
     @Override
     public String clientName() {
@@ -0,0 +1,111 @@
+package com.sufy.util;
+
+import com.alibaba.fastjson.JSONObject;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HDR 风格的对数-线性直方图，记录纳秒级耗时。
+ * <p>
+ * 每个 2 的幂区间再等分为 2^SUB_BUCKET_BITS 个子桶，相对误差不超过 1/32，
+ * 桶数组固定大小，记录时只有一次原子自增，可以在多个线程间共享。
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(0);
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(value));
+        totalCount.increment();
+        sum.add(value);
+        min.accumulateAndGet(value, Math::min);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public long count() {
+        return totalCount.sum();
+    }
+
+    public long min() {
+        return count() == 0 ? 0 : min.get();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public double mean() {
+        long count = count();
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+
+    /**
+     * @param percentile 0 ~ 100
+     * @return 对应分位所在桶的上界（纳秒）
+     */
+    public long percentile(double percentile) {
+        long count = count();
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestEquivalentValue(i), max());
+            }
+        }
+        return max();
+    }
+
+    /**
+     * 以毫秒为单位导出统计摘要
+     */
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        json.put("count", count());
+        json.put("minMs", toMillis(min()));
+        json.put("meanMs", mean() / 1_000_000.0);
+        json.put("p50Ms", toMillis(percentile(50)));
+        json.put("p90Ms", toMillis(percentile(90)));
+        json.put("p99Ms", toMillis(percentile(99)));
+        json.put("p999Ms", toMillis(percentile(99.9)));
+        json.put("maxMs", toMillis(max()));
+        return json;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long subBucket = index % SUB_BUCKET_COUNT;
+        long lowest = (subBucket + SUB_BUCKET_COUNT) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,111 @@
+package com.sufy.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 无锁、有界的追加缓冲区，多个线程可以同时写入。
+ * <p>
+ * 写入时通过原子计数器认领序号，再写入 序号 % 容量 对应的槽位，不需要全局锁；
+ * 写满后按 {@link OverflowPolicy} 决定丢弃最新还是覆盖最旧的记录。
+ */
+public class RecordBuffer<T> {
+    public enum OverflowPolicy {
+        // 写满后丢弃新记录，保留最早的 capacity 条
+        DROP_NEWEST,
+        // 写满后覆盖最旧的记录，保留最近的 capacity 条
+        DROP_OLDEST
+    }
+
+    private static class Slot<T> {
+        final long sequence;
+        final T value;
+
+        Slot(long sequence, T value) {
+            this.sequence = sequence;
+            this.value = value;
+        }
+    }
+
+    private final AtomicReferenceArray<Slot<T>> slots;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public RecordBuffer(int capacity, OverflowPolicy overflowPolicy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * 追加一条记录，返回是否写入成功（DROP_NEWEST 策略下缓冲区满时返回 false）
+     */
+    public boolean add(T value) {
+        long seq;
+        if (overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+            do {
+                seq = sequence.get();
+                if (seq >= capacity) {
+                    dropped.incrementAndGet();
+                    return false;
+                }
+            } while (!sequence.compareAndSet(seq, seq + 1));
+        } else {
+            seq = sequence.getAndIncrement();
+            if (seq >= capacity) {
+                dropped.incrementAndGet();
+            }
+        }
+        int index = (int) (seq % capacity);
+        Slot<T> slot = new Slot<>(seq, value);
+        // 覆盖模式下，只允许更新的序号覆盖槽位，避免慢线程把旧记录写回去
+        Slot<T> current;
+        do {
+            current = slots.get(index);
+            if (current != null && current.sequence > seq) {
+                return false;
+            }
+        } while (!slots.compareAndSet(index, current, slot));
+        return true;
+    }
+
+    /**
+     * 当前缓冲区内容的快照，按 comparator 排序；正在写入的槽位不会出现在结果中
+     */
+    public List<T> snapshot(Comparator<? super T> comparator) {
+        List<Slot<T>> present = new ArrayList<>(capacity);
+        for (int i = 0; i < capacity; i++) {
+            Slot<T> slot = slots.get(i);
+            if (slot != null) {
+                present.add(slot);
+            }
+        }
+        List<T> result = new ArrayList<>(present.size());
+        present.stream()
+                .sorted(Comparator.comparingLong(s -> s.sequence))
+                .forEach(s -> result.add(s.value));
+        if (comparator != null) {
+            result.sort(comparator);
+        }
+        return result;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * 因缓冲区已满被丢弃或被覆盖的记录数
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+}
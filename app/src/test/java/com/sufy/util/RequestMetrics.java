@@ -0,0 +1,231 @@
+package com.sufy.util;
+
+import com.alibaba.fastjson.JSONObject;
+import software.amazon.awssdk.http.SdkHttpRequest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按接口汇总的请求耗时与吞吐统计，由 {@link HttpClientRecorder} 在每个请求结束时写入。
+ * <p>
+ * 每个接口记录三类耗时：请求体发送完成、收到响应头（首字节）、响应体读取完毕，
+ * 以及双向传输的字节数；运行结束后可以导出为 JSON。
+ */
+public class RequestMetrics {
+    private final boolean pathStyle;
+    private final String endpointHost;
+    private final ConcurrentHashMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private final long createdAt = System.nanoTime();
+
+    public static class OperationMetrics {
+        public final LatencyHistogram sendTime = new LatencyHistogram();
+        public final LatencyHistogram timeToFirstByte = new LatencyHistogram();
+        public final LatencyHistogram totalTime = new LatencyHistogram();
+        public final LongAdder bytesSent = new LongAdder();
+        public final LongAdder bytesReceived = new LongAdder();
+        public final LongAdder errors = new LongAdder();
+
+        JSONObject toJson() {
+            JSONObject json = new JSONObject();
+            long count = totalTime.count();
+            json.put("count", count);
+            json.put("errors", errors.sum());
+            json.put("bytesSent", bytesSent.sum());
+            json.put("bytesReceived", bytesReceived.sum());
+            // 单请求平均吞吐：传输字节数 / 平均总耗时
+            double meanSeconds = totalTime.mean() / 1_000_000_000.0;
+            double bytesPerRequest = count == 0 ? 0 : (double) (bytesSent.sum() + bytesReceived.sum()) / count;
+            json.put("throughputBytesPerSecond", meanSeconds == 0 ? 0 : bytesPerRequest / meanSeconds);
+            json.put("sendTime", sendTime.toJson());
+            json.put("timeToFirstByte", timeToFirstByte.toJson());
+            json.put("totalTime", totalTime.toJson());
+            return json;
+        }
+    }
+
+    /**
+     * @param pathStyle    请求路径是否为 /{bucket}/{key} 形式，用于从请求推断接口名
+     * @param endpointHost endpoint 的主机名；虚拟主机模式下请求的 Host 与之相同说明没有 bucket，为 null 时认为总有 bucket
+     */
+    public RequestMetrics(boolean pathStyle, String endpointHost) {
+        this.pathStyle = pathStyle;
+        this.endpointHost = endpointHost;
+    }
+
+    /**
+     * @param sendNanos 请求体发送耗时，没有请求体时传 -1
+     */
+    public void record(String operation, long sendNanos, long firstByteNanos, long totalNanos,
+                       long bytesSent, long bytesReceived) {
+        OperationMetrics metrics = operation(operation);
+        if (sendNanos >= 0) {
+            metrics.sendTime.record(sendNanos);
+        }
+        metrics.timeToFirstByte.record(firstByteNanos);
+        metrics.totalTime.record(totalNanos);
+        metrics.bytesSent.add(bytesSent);
+        metrics.bytesReceived.add(bytesReceived);
+    }
+
+    public void recordError(String operation) {
+        operation(operation).errors.increment();
+    }
+
+    public OperationMetrics operation(String operation) {
+        return operations.computeIfAbsent(operation, k -> new OperationMetrics());
+    }
+
+    public Map<String, OperationMetrics> operations() {
+        return new TreeMap<>(operations);
+    }
+
+    public JSONObject toJson() {
+        JSONObject ops = new JSONObject();
+        operations().forEach((name, metrics) -> ops.put(name, metrics.toJson()));
+        JSONObject json = new JSONObject();
+        json.put("elapsedSeconds", (System.nanoTime() - createdAt) / 1_000_000_000.0);
+        json.put("operations", ops);
+        return json;
+    }
+
+    public void writeJson(Path path) {
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            Files.write(path, toJson().toJSONString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 在 JVM 退出时导出统计结果
+     */
+    public void exportOnShutdown(Path path) {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> writeJson(path)));
+    }
+
+    /**
+     * HTTP 层拿不到 SDK 的接口名，这里根据方法、路径与子资源参数推断
+     */
+    public String operationName(SdkHttpRequest request) {
+        String method = request.method().name();
+        Map<String, List<String>> query = request.rawQueryParameters();
+        String path = request.encodedPath() == null ? "" : request.encodedPath();
+        String trimmed = path.startsWith("/") ? path.substring(1) : path;
+        boolean hasBucket;
+        boolean hasKey;
+        if (pathStyle) {
+            hasBucket = !trimmed.isEmpty();
+            hasKey = hasBucket && trimmed.indexOf('/') > 0 && trimmed.indexOf('/') < trimmed.length() - 1;
+        } else {
+            // bucket 在 Host 里，如 {bucket}.{endpoint}；直接访问 endpoint 的只有 ListBuckets 这类服务级接口
+            hasBucket = endpointHost == null || !endpointHost.equalsIgnoreCase(request.host());
+            hasKey = hasBucket && !trimmed.isEmpty();
+        }
+        if (!hasBucket) {
+            return "ListBuckets";
+        }
+        if (hasKey) {
+            return objectOperation(method, query, request.firstMatchingHeader("x-sufy-copy-source").isPresent());
+        }
+        return bucketOperation(method, query);
+    }
+
+    private static String objectOperation(String method, Map<String, List<String>> query, boolean copy) {
+        if (query.containsKey("acl")) {
+            return verb(method) + "ObjectAcl";
+        }
+        if (query.containsKey("restore")) {
+            return "RestoreObject";
+        }
+        if (query.containsKey("uploads")) {
+            return "CreateMultipartUpload";
+        }
+        if (query.containsKey("uploadId")) {
+            switch (method) {
+                case "PUT":
+                    return copy ? "UploadPartCopy" : "UploadPart";
+                case "POST":
+                    return "CompleteMultipartUpload";
+                case "GET":
+                    return "ListParts";
+                case "DELETE":
+                    return "AbortMultipartUpload";
+                default:
+                    return method + "MultipartUpload";
+            }
+        }
+        switch (method) {
+            case "PUT":
+                return copy ? "CopyObject" : "PutObject";
+            case "GET":
+                return "GetObject";
+            case "HEAD":
+                return "HeadObject";
+            case "DELETE":
+                return "DeleteObject";
+            default:
+                return method + "Object";
+        }
+    }
+
+    private static String bucketOperation(String method, Map<String, List<String>> query) {
+        String[][] subResources = {
+                {"acl", "BucketAcl"},
+                {"cors", "BucketCors"},
+                {"tagging", "BucketTagging"},
+                {"lifecycle", "BucketLifecycle"},
+                {"policyStatus", "BucketPolicyStatus"},
+                {"policy", "BucketPolicy"},
+                {"website", "BucketWebsite"},
+                {"location", "BucketLocation"},
+        };
+        for (String[] subResource : subResources) {
+            if (query.containsKey(subResource[0])) {
+                return verb(method) + subResource[1];
+            }
+        }
+        if (query.containsKey("uploads")) {
+            return "ListMultipartUploads";
+        }
+        if (query.containsKey("delete")) {
+            return "DeleteObjects";
+        }
+        switch (method) {
+            case "GET":
+                return query.containsKey("list-type") ? "ListObjectsV2" : "ListObjects";
+            case "PUT":
+                return "CreateBucket";
+            case "HEAD":
+                return "HeadBucket";
+            case "DELETE":
+                return "DeleteBucket";
+            default:
+                return method + "Bucket";
+        }
+    }
+
+    private static String verb(String method) {
+        switch (method) {
+            case "GET":
+                return "Get";
+            case "PUT":
+                return "Put";
+            case "DELETE":
+                return "Delete";
+            default:
+                return method;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.sufy.util;
+
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.ContentStreamProvider;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * 由种子确定的伪随机对象内容，任意位置的字节可以直接计算出来，不需要把对象保存在内存中。
+ * <p>
+ * 第 i 个 8 字节块的内容为 splitmix64(seed, i)，生成与校验都按块计算，不分配内存；
+ * 同一个种子与大小在上传端与下载端得到的内容完全一致，可以用来校验下载结果。
+ */
+public final class SeededPayload {
+    public static final String CONTENT_TYPE = "application/octet-stream";
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    // 按小端一次写入 8 个字节，与 byteAt 的字节顺序一致
+    private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final int VERIFY_BUFFER_SIZE = 64 * 1024;
+    private static final ThreadLocal<byte[]> VERIFY_BUFFERS = ThreadLocal.withInitial(() -> new byte[2 * VERIFY_BUFFER_SIZE]);
+
+    private final long seed;
+    private final long size;
+
+    public SeededPayload(long seed, long size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("size must not be negative: " + size);
+        }
+        this.seed = seed;
+        this.size = size;
+    }
+
+    public long seed() {
+        return seed;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * 对象中 position 处的字节
+     */
+    public byte byteAt(long position) {
+        return (byte) (block(position >>> 3) >>> ((position & 7) << 3));
+    }
+
+    /**
+     * 把 [offset, offset + len) 的内容写入 dst[off, off + len)
+     */
+    public void fill(long offset, byte[] dst, int off, int len) {
+        checkRange(offset, len);
+        long position = offset;
+        int i = off;
+        int end = off + len;
+        // 先补齐到 8 字节边界，再整块写入
+        while (i < end && (position & 7) != 0) {
+            dst[i++] = byteAt(position++);
+        }
+        while (end - i >= 8) {
+            LONG_LE.set(dst, i, block(position >>> 3));
+            i += 8;
+            position += 8;
+        }
+        while (i < end) {
+            dst[i++] = byteAt(position++);
+        }
+    }
+
+    /**
+     * 取出一段内容，只用于需要 byte[] 的场景
+     */
+    public byte[] bytes(long offset, int length) {
+        byte[] bytes = new byte[length];
+        fill(offset, bytes, 0, length);
+        return bytes;
+    }
+
+    public byte[] bytes() {
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Payload too large for a byte array: " + size);
+        }
+        return bytes(0, (int) size);
+    }
+
+    public InputStream newInputStream() {
+        return newInputStream(0, size);
+    }
+
+    public InputStream newInputStream(long offset, long length) {
+        checkRange(offset, length);
+        return new PayloadInputStream(offset, offset + length);
+    }
+
+    public ContentStreamProvider contentProvider(long offset, long length) {
+        checkRange(offset, length);
+        return () -> newInputStream(offset, length);
+    }
+
+    public RequestBody requestBody() {
+        return requestBody(0, size);
+    }
+
+    /**
+     * 以 [offset, offset + length) 作为请求体，每次重试重新生成，可以用于分片上传
+     */
+    public RequestBody requestBody(long offset, long length) {
+        return RequestBody.fromContentProvider(contentProvider(offset, length), length, CONTENT_TYPE);
+    }
+
+    /**
+     * 读完 in 并与 [offset, offset + length) 比较
+     *
+     * @return 第一个不一致的位置（相对 offset），长度不一致时为较短一方的长度，完全一致时为 -1
+     */
+    public long firstMismatch(InputStream in, long offset, long length) throws IOException {
+        checkRange(offset, length);
+        // 前半段存放读到的数据，后半段存放期望的数据
+        byte[] buffer = VERIFY_BUFFERS.get();
+        long read = 0;
+        int n;
+        while ((n = in.read(buffer, 0, VERIFY_BUFFER_SIZE)) >= 0) {
+            int expected = (int) Math.min(n, length - read);
+            fill(offset + read, buffer, VERIFY_BUFFER_SIZE, expected);
+            int mismatch = Arrays.mismatch(buffer, 0, expected, buffer, VERIFY_BUFFER_SIZE, VERIFY_BUFFER_SIZE + expected);
+            if (mismatch >= 0) {
+                return read + mismatch;
+            }
+            if (n > expected) {
+                return read + expected;
+            }
+            read += n;
+        }
+        return read == length ? -1 : read;
+    }
+
+    public long firstMismatch(InputStream in) throws IOException {
+        return firstMismatch(in, 0, size);
+    }
+
+    private void checkRange(long offset, long length) {
+        if (offset < 0 || length < 0 || offset + length > size) {
+            throw new IndexOutOfBoundsException("Range [" + offset + ", " + (offset + length) + ") out of payload size " + size);
+        }
+    }
+
+    private long block(long index) {
+        // splitmix64
+        long z = seed + (index + 1) * GOLDEN_GAMMA;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private class PayloadInputStream extends InputStream {
+        private final long end;
+        private long position;
+
+        PayloadInputStream(long position, long end) {
+            this.position = position;
+            this.end = end;
+        }
+
+        @Override
+        public int read() {
+            return position < end ? byteAt(position++) & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= end) {
+                return -1;
+            }
+            int n = (int) Math.min(len, end - position);
+            fill(position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, end - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, end - position);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.sufy.util;
+
+import com.google.common.util.concurrent.RateLimiter;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一组并发任务的作用域：任务都在 join() 之前提交，join() 等待全部完成后关闭线程池。
+ * <p>
+ * 在途任务数有上限，达到上限时 submit() 阻塞，直到有任务完成，提交方的速度由执行速度决定；
+ * 按操作名配置的速率限制同样在提交时生效。join() 通过 Phaser 在最后一个任务完成时被唤醒，不轮询。
+ * <p>
+ * 任意任务抛出异常后，其余任务被取消（中断），之后提交的任务不再执行；
+ * join() 抛出第一个异常，同时失败的其他任务的异常附加为 suppressed，断言失败也能让测试失败。
+ * 运行在 Java 21 及以上时可以使用虚拟线程，每个任务一个线程，阻塞的 SDK 调用不再受线程池大小限制。
+ */
+public class TaskScope implements AutoCloseable {
+    private static final ExecutorFactory VIRTUAL_THREADS = lookupVirtualThreadExecutor();
+
+    private final ExecutorService executor;
+    private final boolean virtual;
+    private final int maxInFlight;
+    private final Semaphore window;
+    private final Map<String, RateLimiter> rateLimiters;
+    // 调用方自身占一个 party，每个在途任务占一个
+    private final Phaser phaser = new Phaser(1);
+    private final Set<FutureTask<Void>> running = ConcurrentHashMap.newKeySet();
+    private final Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+    private volatile boolean cancelled;
+
+    private interface ExecutorFactory {
+        ExecutorService create() throws Exception;
+    }
+
+    private TaskScope(Builder builder) {
+        ExecutorService virtualExecutor = null;
+        if (builder.virtualThreads && VIRTUAL_THREADS != null) {
+            try {
+                virtualExecutor = VIRTUAL_THREADS.create();
+            } catch (Exception e) {
+                // ignore, 退回平台线程
+            }
+        }
+        this.virtual = virtualExecutor != null;
+        this.executor = virtual ? virtualExecutor : Executors.newFixedThreadPool(builder.threads);
+        this.maxInFlight = builder.maxInFlight;
+        this.window = new Semaphore(maxInFlight);
+        Map<String, RateLimiter> limiters = new HashMap<>();
+        builder.rateLimits.forEach((operation, permitsPerSecond) ->
+                limiters.put(operation, RateLimiter.create(permitsPerSecond)));
+        this.rateLimiters = limiters;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private boolean virtualThreads = true;
+        private int threads = 10;
+        private int maxInFlight = 1024;
+        private final Map<String, Double> rateLimits = new HashMap<>();
+
+        /**
+         * 支持时使用虚拟线程，每个任务一个线程
+         */
+        public Builder virtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+
+        /**
+         * 不使用虚拟线程时的平台线程数
+         */
+        public Builder threads(int threads) {
+            if (threads <= 0) {
+                throw new IllegalArgumentException("threads must be positive: " + threads);
+            }
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * 已提交但未完成的任务数上限
+         */
+        public Builder maxInFlight(int maxInFlight) {
+            // 每个在途任务在 Phaser 中注册一个 party，Phaser 最多支持 65535 个
+            if (maxInFlight <= 0 || maxInFlight >= 65535) {
+                throw new IllegalArgumentException("maxInFlight must be in [1, 65534]: " + maxInFlight);
+            }
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * 以 operation 提交的任务每秒最多开始 permitsPerSecond 个
+         */
+        public Builder rateLimit(String operation, double permitsPerSecond) {
+            if (permitsPerSecond <= 0) {
+                throw new IllegalArgumentException("permitsPerSecond must be positive: " + permitsPerSecond);
+            }
+            this.rateLimits.put(operation, permitsPerSecond);
+            return this;
+        }
+
+        public Builder rateLimits(Map<String, Double> rateLimits) {
+            if (rateLimits != null) {
+                rateLimits.forEach(this::rateLimit);
+            }
+            return this;
+        }
+
+        public TaskScope build() {
+            return new TaskScope(this);
+        }
+    }
+
+    /**
+     * 当前 JVM 是否支持 Executors.newVirtualThreadPerTaskExecutor()
+     */
+    public static boolean virtualThreadsAvailable() {
+        return VIRTUAL_THREADS != null;
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void submit(Runnable task) {
+        submit(null, task);
+    }
+
+    /**
+     * 提交一个任务，在途任务达到上限或 operation 超过速率限制时阻塞；作用域已取消时直接丢弃
+     */
+    public void submit(String operation, Runnable task) {
+        if (cancelled) {
+            return;
+        }
+        RateLimiter limiter = operation == null ? null : rateLimiters.get(operation);
+        if (limiter != null) {
+            limiter.acquire();
+        }
+        // 取消后在途任务会陆续结束并归还许可，这里不会一直阻塞
+        window.acquireUninterruptibly();
+        if (cancelled) {
+            window.release();
+            return;
+        }
+        phaser.register();
+        FutureTask<Void> future = new FutureTask<>(() -> {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                fail(t);
+            }
+            return null;
+        }) {
+            @Override
+            protected void done() {
+                running.remove(this);
+                window.release();
+                phaser.arriveAndDeregister();
+            }
+        };
+        running.add(future);
+        try {
+            executor.execute(future);
+        } catch (RejectedExecutionException e) {
+            future.cancel(false);
+            throw e;
+        }
+    }
+
+    private void fail(Throwable t) {
+        // 取消后其他任务因中断产生的异常不计入
+        if (cancelled) {
+            return;
+        }
+        failures.add(t);
+        cancel();
+    }
+
+    /**
+     * 取消所有未完成的任务
+     */
+    public void cancel() {
+        cancelled = true;
+        running.forEach(f -> f.cancel(true));
+    }
+
+    /**
+     * 等待所有任务完成并关闭线程池，有任务失败时抛出第一个异常
+     */
+    public void join() throws InterruptedException {
+        try {
+            phaser.awaitAdvanceInterruptibly(phaser.arrive());
+            executor.shutdown();
+            // 被取消的任务可能仍在响应中断，等它们真正退出后再返回
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            close();
+            throw e;
+        }
+        Iterator<Throwable> it = failures.iterator();
+        if (!it.hasNext()) {
+            return;
+        }
+        Throwable first = it.next();
+        while (it.hasNext()) {
+            Throwable other = it.next();
+            if (other != first) {
+                first.addSuppressed(other);
+            }
+        }
+        if (first instanceof RuntimeException) {
+            throw (RuntimeException) first;
+        }
+        if (first instanceof Error) {
+            throw (Error) first;
+        }
+        throw new CompletionException(first);
+    }
+
+    @Override
+    public void close() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    // 编译目标为 Java 17，通过反射使用 Java 21 的虚拟线程 API
+    private static ExecutorFactory lookupVirtualThreadExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return () -> (ExecutorService) method.invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}